@@ -0,0 +1,28 @@
+package jpabook.jpashop.processor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 응답 DTO의 Jackson serializer를 컴파일할 때 생성한다.(SerializerProcessor)
+ *
+ * 생성되는 클래스는 DTO와 같은 패키지의 {바깥 클래스}_{DTO}JsonSerializer 이고, DTO에 직접 연결한다.
+ * <pre>
+ * &#64;Getter
+ * &#64;GenerateSerializer
+ * &#64;JsonSerialize(using = OrderApiController_OrderDtoJsonSerializer.class)
+ * static class OrderDto { ... }
+ * </pre>
+ *
+ * 필드 선언 순서대로 getter(Lombok)를 호출해서 쓴다. static 필드와 @JsonIgnore 필드는 쓰지 않고, @JsonProperty 이름은 따른다.
+ * 그 밖의 Jackson 필드, 클래스 어노테이션(@JsonInclude, @JsonFormat ...)은 지원하지 않으므로 컴파일 오류로 알린다.
+ * null 필드는 ObjectMapper의 기본 포함 규칙을 따르고 ALWAYS, NON_NULL만 지원한다.(그 밖의 규칙은 serializer를 찾을 때 실패)
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateSerializer {
+}
@@ -0,0 +1,282 @@
+package jpabook.jpashop.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * &#64;GenerateSerializer DTO의 Jackson serializer 생성
+ *
+ * Jackson BeanSerializer는 프로퍼티마다 리플렉션(Method.invoke)으로 값을 읽고 값의 타입으로 serializer를 찾는다.
+ * 생성된 serializer는 getter를 직접 호출하고 필드 타입별로 JsonGenerator 메서드를 바로 부른다.
+ * - 기본 타입, 박싱 타입, String, enum(name()): JsonGenerator에 바로 쓴다.
+ * - Collection&lt;&#64;GenerateSerializer DTO&gt;: 생성된 serializer를 직접 호출한다.
+ * - 그 밖의 타입(LocalDateTime, Address, 타입 변수 ...): provider.defaultSerializeField()로 ObjectMapper 설정을 따른다.
+ *
+ * null 필드는 ObjectMapper의 기본 포함 규칙(setSerializationInclusion, 타입별 configOverride)을 따른다.
+ * ALWAYS(USE_DEFAULTS)는 null도 쓰고 NON_NULL은 빼며, 그 밖의 규칙은 serializer를 찾을 때 InvalidDefinitionException으로 실패한다.
+ * BeanSerializerModifier는 적용되지 않는다.(LazyLoadingGuardModule은 생성된 serializer를 끄고 BeanSerializer를 쓴다.)
+ */
+@SupportedAnnotationTypes("jpabook.jpashop.processor.GenerateSerializer")
+public class SerializerProcessor extends AbstractProcessor {
+
+    private static final String SUFFIX = "JsonSerializer";
+    private static final String JACKSON_ANNOTATION = "com.fasterxml.jackson.annotation.";
+    private static final String JSON_IGNORE = JACKSON_ANNOTATION + "JsonIgnore";
+    private static final String JSON_PROPERTY = JACKSON_ANNOTATION + "JsonProperty";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateSerializer.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.PRIVATE)
+                    || !((TypeElement) element).getTypeParameters().isEmpty()) {
+                error(element, "@GenerateSerializer는 private이 아니고 타입 변수가 없는 클래스에만 쓸 수 있습니다.");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "serializer를 생성하지 못했습니다. " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement dto) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(dto).getQualifiedName().toString();
+        String dtoName = simpleName(dto, packageName);
+        String serializerName = serializerName(dto, packageName);
+
+        for (AnnotationMirror annotation : dto.getAnnotationMirrors()) {
+            String annotationName = annotation.getAnnotationType().toString();
+            if (annotationName.startsWith(JACKSON_ANNOTATION)) {
+                error(dto, "@GenerateSerializer는 " + annotationName + "를 지원하지 않습니다.");
+            }
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (VariableElement field : ElementFilter.fieldsIn(dto.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || hasAnnotation(field, JSON_IGNORE)) {
+                continue;
+            }
+            for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+                String annotationName = annotation.getAnnotationType().toString();
+                if (annotationName.startsWith(JACKSON_ANNOTATION) && !annotationName.equals(JSON_PROPERTY)) {
+                    error(field, "@GenerateSerializer는 " + annotationName + "를 지원하지 않습니다.");
+                }
+            }
+            writeField(body, field);
+        }
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(packageName + "." + serializerName, dto).openWriter()) {
+            writer.write("package " + packageName + ";\n\n"
+                    + "import com.fasterxml.jackson.annotation.JsonInclude;\n"
+                    + "import com.fasterxml.jackson.core.JsonGenerator;\n"
+                    + "import com.fasterxml.jackson.databind.BeanProperty;\n"
+                    + "import com.fasterxml.jackson.databind.JsonMappingException;\n"
+                    + "import com.fasterxml.jackson.databind.JsonSerializer;\n"
+                    + "import com.fasterxml.jackson.databind.SerializerProvider;\n"
+                    + "import com.fasterxml.jackson.databind.ser.ContextualSerializer;\n"
+                    + "import com.fasterxml.jackson.databind.ser.std.StdSerializer;\n\n"
+                    + "import java.io.IOException;\n\n"
+                    + "@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n"
+                    + "public final class " + serializerName + " extends StdSerializer<" + dtoName + "> implements ContextualSerializer {\n\n"
+                    + "    public static final " + serializerName + " INSTANCE = new " + serializerName + "(false);\n"
+                    + "    private static final " + serializerName + " NON_NULL = new " + serializerName + "(true);\n\n"
+                    + "    private final boolean skipNulls;\n\n"
+                    + "    public " + serializerName + "() {\n"
+                    + "        this(false);\n"
+                    + "    }\n\n"
+                    + "    private " + serializerName + "(boolean skipNulls) {\n"
+                    + "        super(" + dtoName + ".class);\n"
+                    + "        this.skipNulls = skipNulls;\n"
+                    + "    }\n\n"
+                    + "    /**\n"
+                    + "     * ObjectMapper의 기본 포함 규칙에 맞는 serializer (ALWAYS, NON_NULL만 지원)\n"
+                    + "     */\n"
+                    + "    public static " + serializerName + " forInclusion(SerializerProvider provider) throws JsonMappingException {\n"
+                    + "        JsonInclude.Include inclusion = provider.getConfig().getDefaultPropertyInclusion(" + dtoName + ".class).getValueInclusion();\n"
+                    + "        switch (inclusion) {\n"
+                    + "            case ALWAYS:\n"
+                    + "            case USE_DEFAULTS:\n"
+                    + "                return INSTANCE;\n"
+                    + "            case NON_NULL:\n"
+                    + "                return NON_NULL;\n"
+                    + "            default:\n"
+                    + "                return provider.reportBadDefinition(" + dtoName + ".class,\n"
+                    + "                        \"생성된 serializer는 JsonInclude.Include.\" + inclusion + \"를 지원하지 않습니다.(ALWAYS, NON_NULL만 지원)\");\n"
+                    + "        }\n"
+                    + "    }\n\n"
+                    + "    @Override\n"
+                    + "    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {\n"
+                    + "        return forInclusion(provider);\n"
+                    + "    }\n\n"
+                    + "    @Override\n"
+                    + "    public void serialize(" + dtoName + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {\n"
+                    + "        gen.writeStartObject(value);\n"
+                    + body
+                    + "        gen.writeEndObject();\n"
+                    + "    }\n"
+                    + "}\n");
+        }
+    }
+
+    private void writeField(StringBuilder body, VariableElement field) {
+        TypeMirror type = field.asType();
+        String name = jsonName(field);
+        String local = "_" + field.getSimpleName();
+        String getter = "value." + getterName(field) + "()";
+
+        if (type.getKind().isPrimitive()) {
+            String method = type.getKind() == TypeKind.BOOLEAN ? "writeBooleanField"
+                    : type.getKind() == TypeKind.CHAR ? "writeStringField" : "writeNumberField";
+            String argument = type.getKind() == TypeKind.CHAR ? "String.valueOf(" + getter + ")" : getter;
+            body.append("        gen.").append(method).append("(\"").append(name).append("\", ").append(argument).append(");\n");
+            return;
+        }
+
+        body.append("        ").append(type).append(' ').append(local).append(" = ").append(getter).append(";\n");
+        String write = direct(type, name, local);
+        if (write == null) {
+            body.append("        if (").append(local).append(" != null || !skipNulls) {\n")
+                    .append("            provider.defaultSerializeField(\"").append(name).append("\", ").append(local).append(", gen);\n")
+                    .append("        }\n");
+            return;
+        }
+        body.append("        if (").append(local).append(" != null) {\n")
+                .append(write)
+                .append("        } else if (!skipNulls) {\n")
+                .append("            gen.writeNullField(\"").append(name).append("\");\n")
+                .append("        }\n");
+    }
+
+    /**
+     * ObjectMapper를 거치지 않고 쓰는 코드, 해당하지 않으면 null
+     */
+    private String direct(TypeMirror type, String name, String local) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeElement element = (TypeElement) declaredType.asElement();
+        String typeName = element.getQualifiedName().toString();
+
+        switch (typeName) {
+            case "java.lang.String":
+                return "            gen.writeStringField(\"" + name + "\", " + local + ");\n";
+            case "java.lang.Boolean":
+                return "            gen.writeBooleanField(\"" + name + "\", " + local + ");\n";
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Float":
+            case "java.lang.Double":
+            case "java.math.BigDecimal":
+                return "            gen.writeNumberField(\"" + name + "\", " + local + ");\n";
+            default:
+        }
+        if (element.getKind() == ElementKind.ENUM) {
+            return "            gen.writeStringField(\"" + name + "\", " + local + ".name());\n";
+        }
+        if (isCollection(declaredType) && declaredType.getTypeArguments().size() == 1) {
+            TypeMirror elementType = declaredType.getTypeArguments().get(0);
+            if (elementType.getKind() != TypeKind.DECLARED) {
+                return null;
+            }
+            TypeElement elementDto = (TypeElement) ((DeclaredType) elementType).asElement();
+            if (elementDto.getAnnotation(GenerateSerializer.class) == null) {
+                return null;
+            }
+            String packageName = processingEnv.getElementUtils().getPackageOf(elementDto).getQualifiedName().toString();
+            String elementSerializer = packageName + "." + serializerName(elementDto, packageName);
+            String elementSerializerLocal = local + "Serializer";
+            return "            " + elementSerializer + " " + elementSerializerLocal + " = " + elementSerializer + ".forInclusion(provider);\n"
+                    + "            gen.writeArrayFieldStart(\"" + name + "\");\n"
+                    + "            for (" + elementType + " element : " + local + ") {\n"
+                    + "                if (element == null) {\n"
+                    + "                    gen.writeNull();\n"
+                    + "                } else {\n"
+                    + "                    " + elementSerializerLocal + ".serialize(element, gen, provider);\n"
+                    + "                }\n"
+                    + "            }\n"
+                    + "            gen.writeEndArray();\n";
+        }
+        return null;
+    }
+
+    private boolean isCollection(DeclaredType type) {
+        TypeMirror collection = processingEnv.getTypeUtils().erasure(
+                processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+        return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type), collection);
+    }
+
+    private String jsonName(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (!annotation.getAnnotationType().toString().equals(JSON_PROPERTY)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                String value = entry.getValue().getValue().toString();
+                if (entry.getKey().getSimpleName().contentEquals("value") && !value.isEmpty()) {
+                    return value;
+                }
+            }
+        }
+        return field.getSimpleName().toString();
+    }
+
+    /**
+     * Lombok @Getter 이름 (boolean은 is, 나머지는 get)
+     */
+    private static String getterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(annotation -> annotation.getAnnotationType().toString().equals(annotationName));
+    }
+
+    /**
+     * 패키지를 뺀 이름 (OrderApiController.OrderDto)
+     */
+    private static String simpleName(TypeElement type, String packageName) {
+        String qualifiedName = type.getQualifiedName().toString();
+        return packageName.isEmpty() ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+    }
+
+    /**
+     * OrderApiController.OrderDto -> OrderApiController_OrderDtoJsonSerializer
+     */
+    static String serializerName(TypeElement type, String packageName) {
+        return simpleName(type, packageName).replace('.', '_') + SUFFIX;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
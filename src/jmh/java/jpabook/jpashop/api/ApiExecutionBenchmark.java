@@ -0,0 +1,68 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.JpashopApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀의 2배 동시 요청에서 GET /api/v5/orders 응답 시간, 처리량 비교 (BLOCKING vs ASYNC)
+ *
+ * execution=BLOCKING: 톰캣 요청 스레드에서 조회
+ * execution=ASYNC   : 커넥션 풀 크기의 전용 스레드에서 조회하고 요청 스레드는 반납
+ *
+ * 처리량은 thrpt (req/s), 응답 시간 분포는 sample 모드의 p0.50, p0.99
+ * ./gradlew jmh -Pjmh.includes=ApiExecutionBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(ApiExecutionBenchmark.POOL_SIZE * 2)
+public class ApiExecutionBenchmark {
+
+    static final int POOL_SIZE = 4;
+
+    @Param({"BLOCKING", "ASYNC"})
+    public String execution;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--server.port=0",
+                "--jpashop.api.execution=" + execution,
+                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-api-" + execution + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        String port = context.getEnvironment().getProperty("local.server.port");
+
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v5/orders")).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String orders() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("요청 실패 status = " + response.statusCode());
+        }
+        return response.body();
+    }
+}
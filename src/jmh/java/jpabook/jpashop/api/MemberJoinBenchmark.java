@@ -0,0 +1,80 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.service.MemberNameFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원 가입(POST /api/v2/members) 처리량
+ * 회원이 existingMembers 명 있을 때 새 이름으로 가입한다.
+ *
+ * nameFilter=true : Bloom filter에 없으면 중복 조회 없이 insert
+ * nameFilter=false: 가입마다 exists 쿼리 후 insert
+ *
+ * 회원 수는 -p existingMembers=... , 동시 가입은 -t 로 바꿀 수 있다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class MemberJoinBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    @Param("1000000")
+    public int existingMembers;
+    @Param({"true", "false"})
+    public boolean nameFilter;
+
+    ConfigurableApplicationContext context;
+    MemberApiController memberApiController;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-member-join;DB_CLOSE_DELAY=-1",
+                "--jpashop.member.name-filter.enabled=" + nameFilter,
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        memberApiController = context.getBean(MemberApiController.class);
+
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(MemberNameFilter.class).warmUp(); //시작할 때는 회원이 없었으므로 다시 채운다.
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 시퀀스와 겹치지 않도록 음수 id로 jdbc batch insert
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 1; i <= existingMembers; i++) {
+            batch.add(new Object[]{(long) -i, "member" + i});
+            if (batch.size() == SEED_BATCH_SIZE || i == existingMembers) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, name) values (?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object join() {
+        MemberApiController.CreateMemberRequest request = new MemberApiController.CreateMemberRequest();
+        request.setName("join" + sequence.incrementAndGet());
+        return memberApiController.saveMemberV2(request);
+    }
+}
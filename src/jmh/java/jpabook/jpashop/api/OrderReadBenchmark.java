@@ -0,0 +1,280 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * 주문 조회 방식별 성능 비교
+ * OrderApiController(V1~V6), OrderSimpleApiController(V1~V4)의 리포지토리 호출 + DTO 변환을 그대로 측정한다.
+ * (컨트롤러와 같은 패키지에 있어야 package-private DTO를 쓸 수 있다.)
+ *
+ * 결과
+ *  throughput: ops/s
+ *  할당량: gc 프로파일러의 gc.alloc.rate.norm (B/op)
+ *  sql 수: sqlPerCall (호출 한번당 prepare된 statement 수, Hibernate Statistics)
+ *
+ * 회원/주문/상품 수는 -p members=... -p ordersPerMember=... -p itemsPerOrder=... 로 바꿀 수 있다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderReadBenchmark {
+
+    @Param("100")
+    public int members;
+    @Param("5")
+    public int ordersPerMember;
+    @Param("3")
+    public int itemsPerOrder;
+    @Param("20")
+    public int catalogSize;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnlyTransaction;
+    Statistics statistics;
+    OrderRepository orderRepository;
+    OrderQueryRepository orderQueryRepository;
+    OrderSimpleRepository orderSimpleRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-order-read;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.generate_statistics=true",
+                //조회 방식 자체를 비교하기 위해 캐시는 끈다.
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        orderSimpleRepository = context.getBean(OrderSimpleRepository.class);
+
+        seed(context.getBean(EntityManager.class), new TransactionTemplate(transactionManager));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void seed(EntityManager em, TransactionTemplate transactionTemplate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < catalogSize; i++) {
+                Book book = new Book();
+                book.setName("BOOK" + i);
+                book.setPrice(10000 + i);
+                book.setStockQuantity(Integer.MAX_VALUE / 2);
+                em.persist(book);
+                books.add(book);
+            }
+
+            int seq = 0;
+            for (int m = 0; m < members; m++) {
+                Member member = new Member();
+                member.setName("member" + m);
+                member.setAddress(new Address("서울", "street" + m, "zip" + m));
+                em.persist(member);
+
+                for (int o = 0; o < ordersPerMember; o++) {
+                    OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+                    for (int i = 0; i < itemsPerOrder; i++) {
+                        Book book = books.get(seq++ % books.size());
+                        orderItems[i] = OrderItem.createOrderItem(book, book.getPrice(), 1);
+                    }
+                    Delivery delivery = new Delivery();
+                    delivery.setAddress(member.getAddress());
+                    em.persist(Order.createOrder(member, delivery, orderItems));
+                }
+            }
+        });
+    }
+
+    /**
+     * 컨트롤러처럼(OSIV) 지연 로딩이 가능하도록 읽기 전용 트랜잭션 안에서 실행하고 sql 수를 센다.
+     */
+    private <T> T measure(SqlCounter counter, Supplier<T> call) {
+        long before = statistics.getPrepareStatementCount();
+        T result = readOnlyTransaction.execute(status -> call.get());
+        counter.sqlStatements += statistics.getPrepareStatementCount() - before;
+        counter.calls++;
+        return result;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long sqlStatements;
+        public long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sqlStatements = 0;
+            calls = 0;
+        }
+
+        public double sqlPerCall() {
+            return calls == 0 ? 0 : (double) sqlStatements / calls;
+        }
+    }
+
+    //==OrderApiController==//
+
+    /**
+     * V1 엔티티 노출 + 강제 초기화
+     */
+    @Benchmark
+    public Object ordersV1_entity(SqlCounter counter) {
+        return measure(counter, () -> {
+            List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+            for (Order order : orders) {
+                order.getDelivery().getAddress();
+                order.getMember().getName();
+                order.getOrderItems().forEach(o -> o.getItem().getName());
+            }
+            return orders;
+        });
+    }
+
+    /**
+     * V2 엔티티 -> DTO (지연 로딩, batch fetch)
+     */
+    @Benchmark
+    public Object ordersV2_lazyDto(SqlCounter counter) {
+        return measure(counter, () -> toOrderDtos(orderRepository.findAllByString(new OrderSearch())));
+    }
+
+    /**
+     * V3 컬렉션 페치 조인
+     */
+    @Benchmark
+    public Object ordersV3_fetchJoin(SqlCounter counter) {
+        return measure(counter, () -> toOrderDtos(orderRepository.findAllWithItem()));
+    }
+
+    /**
+     * V3.1 ToOne 페치 조인 + default_batch_fetch_size
+     */
+    @Benchmark
+    public Object ordersV3_1_batchFetch(SqlCounter counter) {
+        return measure(counter, () -> toOrderDtos(orderRepository.findAllWithMemberDelivery(0, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * V4 JPQL DTO 조회 (컬렉션 N번)
+     */
+    @Benchmark
+    public Object ordersV4_dto(SqlCounter counter) {
+        return measure(counter, orderQueryRepository::findOrderQueryDtos);
+    }
+
+    /**
+     * V5 JPQL DTO 조회 + IN 쿼리 조립
+     */
+    @Benchmark
+    public Object ordersV5_dtoInQuery(SqlCounter counter) {
+        return measure(counter, orderQueryRepository::findAllByDto_optimization);
+    }
+
+    /**
+     * V6 flat 조인 + 애플리케이션에서 groupingBy
+     */
+    @Benchmark
+    public Object ordersV6_flat(SqlCounter counter) {
+        return measure(counter, () -> {
+            List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
+            return flats.stream()
+                    .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress(), o.getTotalPrice(), o.getItemCount()),
+                            mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                    )).entrySet().stream()
+                    .map(e -> new OrderQueryDto(
+                            e.getKey().getOrderId(), e.getKey().getName(),
+                            e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
+                            e.getKey().getAddress(), e.getKey().getTotalPrice(), e.getKey().getItemCount(), e.getValue()))
+                    .collect(toList());
+        });
+    }
+
+    /**
+     * V6 flat 조인 + OrderFlatGrouper (order_id 순 스크롤, 주문 단위로 바로 묶음)
+     */
+    @Benchmark
+    public Object ordersV6_flatGrouper(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_flat(0, Long.MAX_VALUE));
+    }
+
+    private List<OrderApiController.OrderDto> toOrderDtos(List<Order> orders) {
+        return orders.stream()
+                .map(OrderApiController.OrderDto::new)
+                .collect(toList());
+    }
+
+    //==OrderSimpleApiController==//
+
+    @Benchmark
+    public Object simpleOrdersV1_entity(SqlCounter counter) {
+        return measure(counter, () -> {
+            List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+            for (Order order : orders) {
+                order.getMember().getName();
+                order.getDelivery().getAddress();
+            }
+            return orders;
+        });
+    }
+
+    @Benchmark
+    public Object simpleOrdersV2_lazyDto(SqlCounter counter) {
+        return measure(counter, () -> orderRepository.findAllByString(new OrderSearch()).stream()
+                .map(OrderSimpleApiController.SimpleOrderDto::new)
+                .collect(toList()));
+    }
+
+    @Benchmark
+    public Object simpleOrdersV3_fetchJoin(SqlCounter counter) {
+        return measure(counter, () -> orderRepository.findAllWithMemberDelivery().stream()
+                .map(OrderSimpleApiController.SimpleOrderDto::new)
+                .collect(toList()));
+    }
+
+    @Benchmark
+    public Object simpleOrdersV4_dto(SqlCounter counter) {
+        return measure(counter, orderSimpleRepository::findOrdersDto);
+    }
+}
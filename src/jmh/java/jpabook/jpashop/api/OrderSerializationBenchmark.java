@@ -0,0 +1,118 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 주문 응답 직렬화 비교 (GET /api/v3/orders 와 같은 Result<List<OrderDto>>, 주문 orders 개)
+ *
+ * serializer=generated : @GenerateSerializer로 생성된 serializer (getter 직접 호출)
+ * serializer=reflective: 같은 DTO를 Jackson BeanSerializer로 (@JsonSerialize 무시)
+ *
+ * DB 없이 메모리의 엔티티로 DTO를 만들고, 직렬화만 측정한다.(응답 스트림 대신 버리는 OutputStream에 쓴다.)
+ * 처리량은 ops/s, 할당량은 gc 프로파일러의 gc.alloc.rate.norm (B/op)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderSerializationBenchmark {
+
+    @Param("1000")
+    public int orders;
+    @Param("3")
+    public int itemsPerOrder;
+    @Param({"generated", "reflective"})
+    public String serializer;
+
+    ObjectMapper objectMapper;
+    OrderApiController.Result<List<OrderApiController.OrderDto>> orderResponse;
+    OrderApiController.Result<List<OrderSimpleApiController.SimpleOrderDto>> simpleOrderResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper generated = objectMapper();
+        ObjectMapper reflective = objectMapper().setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findSerializer(Annotated a) {
+                return null;
+            }
+        });
+        objectMapper = "generated".equals(serializer) ? generated : reflective;
+
+        List<Order> entities = createOrders();
+        orderResponse = new OrderApiController.Result<>(entities.stream()
+                .map(OrderApiController.OrderDto::new)
+                .collect(toList()));
+        simpleOrderResponse = new OrderApiController.Result<>(entities.stream()
+                .map(OrderSimpleApiController.SimpleOrderDto::new)
+                .collect(toList()));
+
+        //두 방식의 결과가 같아야 비교할 의미가 있다.
+        if (!Arrays.equals(generated.writeValueAsBytes(orderResponse), reflective.writeValueAsBytes(orderResponse))
+                || !Arrays.equals(generated.writeValueAsBytes(simpleOrderResponse), reflective.writeValueAsBytes(simpleOrderResponse))) {
+            throw new IllegalStateException("생성된 serializer와 BeanSerializer의 결과가 다릅니다.");
+        }
+    }
+
+    /**
+     * 스프링 부트 기본 설정과 같은 ObjectMapper (jsr310 모듈, 날짜는 문자열)
+     */
+    private static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    private List<Order> createOrders() {
+        List<Order> result = new ArrayList<>(orders);
+        for (int o = 0; o < orders; o++) {
+            Member member = new Member();
+            member.setName("member" + o);
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(new Address("서울", "street" + o, "zip" + o));
+
+            OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+            for (int i = 0; i < itemsPerOrder; i++) {
+                Book book = new Book();
+                book.setName("BOOK" + i);
+                book.setPrice(10000 + i);
+                orderItems[i] = OrderItem.createOrderItemWithoutStock(book, book.getPrice(), i + 1);
+            }
+
+            Order order = Order.createOrder(member, delivery, orderItems);
+            order.setId((long) o + 1);
+            result.add(order);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void orders() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), orderResponse);
+    }
+
+    @Benchmark
+    public void simpleOrders() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), simpleOrderResponse);
+    }
+}
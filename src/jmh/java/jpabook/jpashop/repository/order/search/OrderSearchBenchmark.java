@@ -0,0 +1,104 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 검색 쿼리 준비 비용 비교
+ *
+ * buildQuery_*: 실행 없이 쿼리 객체만 만든다.(문자열 조립 + 파싱/계획 캐시 조회 vs named query 조회)
+ * search_*: 실제 실행까지 (findAllByString 엔티티 조회 vs OrderSearchRepository DTO 조회)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderSearchBenchmark {
+
+    ConfigurableApplicationContext context;
+    EntityManagerFactory emf;
+    TransactionTemplate readOnlyTransaction;
+    OrderRepository orderRepository;
+    OrderSearchRepository orderSearchRepository;
+    OrderSearch orderSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-order-search;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        emf = context.getBean(EntityManagerFactory.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderSearchRepository = context.getBean(OrderSearchRepository.class);
+
+        orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        orderSearch.setMemberName("user");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        EntityManager em;
+
+        @Setup(Level.Iteration)
+        public void open(OrderSearchBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Object buildQuery_concatenated(Session session) {
+        String jpql = "select o From Order o join o.member m";
+        boolean isFirstCondition = true;
+        if (orderSearch.getOrderStatus() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " o.status = :status";
+        }
+        if (orderSearch.getMemberName() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            jpql += " m.name like :name";
+        }
+        return session.em.createQuery(jpql).setMaxResults(1000);
+    }
+
+    @Benchmark
+    public Object buildQuery_named(Session session) {
+        return session.em.createNamedQuery("OrderSearch.3", OrderListDto.class).setMaxResults(1000);
+    }
+
+    @Benchmark
+    public Object search_findAllByString() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAllByString(orderSearch));
+    }
+
+    @Benchmark
+    public Object search_orderSearchRepository() {
+        return readOnlyTransaction.execute(status -> orderSearchRepository.search(orderSearch));
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.OrderRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order.createOrder + OrderRepository.save 처리량 (트랜잭션 한번에 주문 ordersPerTransaction 개)
+ *
+ * incrementSize=1 : 주문 하나(주문, 주문상품, 배송)마다 시퀀스를 3번 호출한다.(기존 hibernate_sequence 방식)
+ * incrementSize=50: 대부분 메모리에서 id를 할당하고 insert는 batch로 묶인다.
+ *
+ * 주문 처리량은 ops/s * ordersPerTransaction
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderSaveBenchmark {
+
+    @Param({"1", "50"})
+    public int incrementSize;
+    @Param("100")
+    public int ordersPerTransaction;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    OrderRepository orderRepository;
+    TransactionTemplate transactionTemplate;
+    Long memberId;
+    Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-order-save-" + incrementSize + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.jpashop.id.increment_size=" + incrementSize,
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        orderRepository = context.getBean(OrderRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("벤치마크회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("벤치마크 jpa");
+            book.setPrice(10000);
+            book.setStockQuantity(Integer.MAX_VALUE); //측정 중에 재고가 떨어지지 않도록
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveOrders() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = em.find(Member.class, memberId);
+            Item item = em.find(Item.class, itemId);
+            for (int i = 0; i < ordersPerTransaction; i++) {
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), 1);
+                orderRepository.save(Order.createOrder(member, delivery, orderItem));
+            }
+        });
+    }
+}
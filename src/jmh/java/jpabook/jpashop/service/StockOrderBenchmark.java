@@ -0,0 +1,67 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 상품에 동시에 몰린 주문 처리량 (재고 차감 방식별, 스레드 threads 개)
+ *
+ * mode=OPTIMISTIC: 상품 row의 version으로 충돌을 감지하고 OrderStockFacade에서 재시도
+ * mode=ATOMIC    : 조건부 update 한번으로 검사 + 차감 (충돌, 재시도 없음)
+ *
+ * 재고가 충분할 때의 경합만 측정한다.(재고 부족 처리는 StockConcurrencyTest에서 검증)
+ * ./gradlew jmh -Pjmh.includes=StockOrderBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class StockOrderBenchmark {
+
+    @Param({"OPTIMISTIC", "ATOMIC"})
+    public StockMode mode;
+
+    ConfigurableApplicationContext context;
+    OrderStockFacade orderStockFacade;
+    Long memberId;
+    Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:jmh-stock-order-" + mode + ";DB_CLOSE_DELAY=-1",
+                "--jpashop.stock.max-retries=1000", //측정 중에 재시도 횟수를 넘어 실패하지 않도록
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        orderStockFacade = context.getBean(OrderStockFacade.class);
+
+        Member member = new Member();
+        member.setName("벤치마크회원");
+        memberId = context.getBean(MemberService.class).join(member);
+
+        Book book = new Book();
+        book.setName("벤치마크 jpa");
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE); //측정 중에 재고가 떨어지지 않도록
+        context.getBean(ItemService.class).saveItem(book);
+        itemId = book.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long order() {
+        return orderStockFacade.order(mode, memberId, itemId, 1);
+    }
+}
@@ -1,23 +1,42 @@
 package jpabook.jpashop;
 
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import jpabook.jpashop.config.LazyLoadingGuardModule;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@ConfigurationPropertiesScan
 public class JpashopApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(JpashopApplication.class, args);
     }
 
+    /**
+     * open-in-view를 끄므로 응답을 쓸 때는 트랜잭션과 영속성 컨텍스트가 이미 닫혀있다.
+     * 초기화된 값만 쓰고, 초기화되지 않은 지연 로딩은 DB에 가지 않고 null로 쓴다.
+     */
     @Bean
     Hibernate5Module hibernate5Module() {
         Hibernate5Module hibernate5Module = new Hibernate5Module();
-        //LAZY LOADING인것들 호출...
-        //hibernate5Module.configure(Hibernate5Module.Feature.FORCE_LAZY_LOADING, true);
+        //LAZY LOADING인것들 호출... (응답을 쓰는 동안 쿼리가 나가므로 사용하지 않는다.)
+        hibernate5Module.configure(Hibernate5Module.Feature.FORCE_LAZY_LOADING, false);
         return hibernate5Module;
     }
 
+    /**
+     * 초기화되지 않은 지연 로딩을 null로 쓰지 않고 실패 (개발, 테스트용)
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.json", name = "fail-on-lazy-loading", havingValue = "true")
+    LazyLoadingGuardModule lazyLoadingGuardModule() {
+        return new LazyLoadingGuardModule();
+    }
+
 }
@@ -0,0 +1,11 @@
+package jpabook.jpashop.api;
+
+/**
+ * api 조회 요청 실행 방식
+ *
+ * BLOCKING: 톰캣 요청 스레드에서 바로 실행한다.
+ * ASYNC: 커넥션 풀 크기만큼의 전용 스레드에서 실행하고 톰캣 스레드는 바로 반납한다.
+ */
+public enum ApiExecutionMode {
+    BLOCKING, ASYNC
+}
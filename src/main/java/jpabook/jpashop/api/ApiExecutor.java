@@ -0,0 +1,111 @@
+package jpabook.jpashop.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jpabook.jpashop.exception.ApiBusyException;
+import jpabook.jpashop.monitoring.SqlStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * api 조회 실행기
+ *
+ * 조회 api는 대부분의 시간을 jdbc 응답을 기다리며 톰캣 요청 스레드를 붙잡고 있다.
+ * 요청이 몰리면 톰캣 스레드가 모두 커넥션을 기다리느라 막히고, DB를 쓰지 않는 요청까지 처리하지 못한다.
+ *
+ * ASYNC 모드는 조회를 전용 스레드에서 실행하고 CompletableFuture를 반환해서 톰캣 스레드를 바로 반납한다.(서블릿 비동기)
+ * 전용 스레드 수를 커넥션 풀 크기와 같게 두므로 커넥션을 기다리는 스레드가 생기지 않고,
+ * 동시에 실행되는 조회 수는 여전히 커넥션 풀(HikariCP)이 결정한다.
+ * 나머지 요청은 크기가 정해진 대기열에서 기다리고, 대기열이 가득 차면 503으로 거절한다.
+ *
+ * 어떤 모드든 읽기 전용 트랜잭션 안에서 실행한다.
+ * 전용 스레드에는 OSIV 영속성 컨텍스트가 없으므로 지연 로딩은 supplier 안에서 끝나야 한다.
+ * (응답 직렬화 때 초기화되지 않은 프록시는 Hibernate5Module이 null로 쓴다.)
+ * 쓰기 api는 서비스 트랜잭션이 읽기 전용 트랜잭션에 참여하면 flush가 되지 않으므로 사용하면 안된다.
+ */
+@Slf4j
+@Component
+public class ApiExecutor {
+
+    private final ApiExecutionMode mode;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+
+    public ApiExecutor(PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${jpashop.api.execution:BLOCKING}") ApiExecutionMode mode,
+                       @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                       @Value("${jpashop.api.queue-capacity:1000}") int queueCapacity) {
+        this.mode = mode;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        if (mode == ApiExecutionMode.ASYNC) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(connectionPoolSize, connectionPoolSize,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, "api-jdbc-" + threadNumber.incrementAndGet()));
+            ExecutorServiceMetrics.monitor(meterRegistry, executor, "api.jdbc");
+            log.info("api 조회를 전용 스레드에서 실행합니다. threads={}, queueCapacity={}", connectionPoolSize, queueCapacity);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public ApiExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 읽기 전용 트랜잭션에서 조회
+     * @throws ApiBusyException (ASYNC) 대기열이 가득 차면 future가 이 예외로 완료된다.
+     */
+    public <T> CompletableFuture<T> read(Supplier<T> query) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(readOnlyTransaction.execute(status -> query.get()));
+        }
+
+        //요청 스레드의 sql 통계를 전용 스레드에서 이어서 집계한다.
+        SqlStatistics statistics = SqlStatistics.current();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                SqlStatistics.bind(statistics);
+                try {
+                    return readOnlyTransaction.execute(status -> query.get());
+                } finally {
+                    SqlStatistics.clear();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ApiBusyException("요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해주세요."));
+        }
+    }
+
+    ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.BadRequestException;
+import jpabook.jpashop.service.CategoryService;
+import jpabook.jpashop.service.CategoryTree;
+import jpabook.jpashop.service.ItemServiceDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private final CategoryService categoryService;
+    private final ApiExecutor apiExecutor;
+
+    /**
+     * 카테고리 트리 (메모리 캐시, 구조가 바뀐 뒤 처음 요청할 때만 DB를 읽는다.)
+     */
+    @GetMapping("/api/categories")
+    public Result<List<CategoryTree.Node>> categories() {
+        return new Result<>(categoryService.getTree().getRoots());
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리의 상품 (상품 id 순)
+     */
+    @GetMapping("/api/categories/{categoryId}/items")
+    public CompletableFuture<Result<List<ItemServiceDto>>> categoryItems(
+            @PathVariable("categoryId") Long categoryId,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return apiExecutor.read(() -> new Result<>(categoryService.findItems(categoryId, offset, limit)));
+    }
+
+    @PostMapping("/api/categories")
+    public CreateCategoryResponse createCategory(@RequestBody @Valid CreateCategoryRequest request) {
+        Long id = categoryService.create(request.getName(), request.getParentId());
+        return new CreateCategoryResponse(id);
+    }
+
+    /**
+     * 하위 카테고리와 함께 이동 (parentId가 없으면 최상위)
+     */
+    @PutMapping("/api/categories/{categoryId}/parent")
+    public void moveCategory(@PathVariable("categoryId") Long categoryId, @RequestBody MoveCategoryRequest request) {
+        categoryService.move(categoryId, request.getParentId());
+    }
+
+    /**
+     * 카테고리나 상품이 없으면 400
+     */
+    @PostMapping("/api/categories/{categoryId}/items/{itemId}")
+    public void addCategoryItem(@PathVariable("categoryId") Long categoryId, @PathVariable("itemId") Long itemId) {
+        try {
+            categoryService.addItem(categoryId, itemId);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+    @Data
+    static class CreateCategoryRequest {
+        @NotEmpty
+        private String name;
+        private Long parentId;
+    }
+
+    @Data
+    static class MoveCategoryRequest {
+        private Long parentId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse {
+        private Long id;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private T data;
+    }
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 엔티티를 그대로 응답하는 핸들러 표시 (V1 예제처럼 일부러 엔티티를 노출하는 경우만)
+ * EntityResponseVerifier는 이 표시가 없는 핸들러가 엔티티를 반환하면 시작할 때 실패한다.
+ *
+ * 표시한 핸들러도 트랜잭션 안에서(ApiExecutor) 필요한 연관관계를 초기화해야 한다.
+ * 응답을 쓸 때는 트랜잭션이 끝났으므로 초기화되지 않은 지연 로딩은 null로 쓰인다.(Hibernate5Module)
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EntityResponse {
+
+    /**
+     * 엔티티를 노출하는 이유
+     */
+    String value();
+}
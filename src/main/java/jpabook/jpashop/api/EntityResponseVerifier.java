@@ -0,0 +1,142 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.persistence.Entity;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 컨트롤러가 엔티티를 반환하지 않는지 시작할 때 확인한다.
+ *
+ * open-in-view를 껐으므로 응답을 쓸 때는 트랜잭션이 끝나 있다.
+ * 엔티티를 그대로 반환하면 초기화되지 않은 지연 로딩이 null로 쓰이거나(Hibernate5Module) 응답 스펙이 엔티티에 묶인다.
+ * 그래서 핸들러 반환 타입을 제네릭(CompletableFuture, List, Result<T> ...)과 이 애플리케이션 DTO의 필드까지 따라가서
+ * 엔티티가 있으면 시작을 실패시킨다. 일부러 엔티티를 노출하는 핸들러(V1 예제)는 @EntityResponse로 표시한다.
+ *
+ * 타입만 보므로 실행해봐야 알 수 있는 타입은 확인할 수 없다.
+ * 그래서 타입 인자 없이 쓴 제네릭(raw Result)이나 Object, 풀 수 없는 타입 변수/와일드카드가 있어도 시작을 실패시킨다.
+ */
+@Slf4j
+@Component
+public class EntityResponseVerifier implements SmartInitializingSingleton {
+
+    private final ApplicationContext applicationContext;
+    private final List<String> basePackages;
+
+    public EntityResponseVerifier(ApplicationContext applicationContext, BeanFactory beanFactory) {
+        this.applicationContext = applicationContext;
+        this.basePackages = AutoConfigurationPackages.get(beanFactory);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> entityViolations = new ArrayList<>();
+        List<String> unresolvedViolations = new ArrayList<>();
+        int handlers = 0;
+        for (RequestMappingHandlerMapping mapping : applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+                if (!isApplicationType(handlerMethod.getBeanType())) {
+                    continue;
+                }
+                handlers++;
+                ResponseTypes types = inspect(ResolvableType.forMethodReturnType(handlerMethod.getMethod()));
+                if (!types.unresolved.isEmpty()) {
+                    unresolvedViolations.add(handlerMethod.getShortLogMessage() + " -> " + types.unresolved);
+                }
+                if (!types.entities.isEmpty() && !handlerMethod.hasMethodAnnotation(EntityResponse.class)) {
+                    entityViolations.add(handlerMethod.getShortLogMessage() + " -> " + types.entities);
+                }
+            }
+        }
+        if (!unresolvedViolations.isEmpty()) {
+            throw new IllegalStateException("반환 타입을 확인할 수 없는 핸들러가 있습니다. 타입 인자를 지정하세요.(Result -> Result<List<OrderDto>>)\n"
+                    + String.join("\n", unresolvedViolations));
+        }
+        if (!entityViolations.isEmpty()) {
+            throw new IllegalStateException("엔티티를 반환하는 핸들러가 있습니다. 트랜잭션 안에서 DTO로 변환하거나 @EntityResponse로 표시하세요.\n"
+                    + String.join("\n", entityViolations));
+        }
+        log.debug("핸들러 반환 타입 확인 완료 handlers={}", handlers);
+    }
+
+    /**
+     * 반환 타입에서 도달할 수 있는 엔티티 타입
+     */
+    Set<Class<?>> findEntityTypes(ResolvableType type) {
+        return inspect(type).entities;
+    }
+
+    /**
+     * 반환 타입에서 도달할 수 있는 타입 중 확인할 수 없는 타입 (raw 제네릭, Object, 풀 수 없는 타입 변수)
+     */
+    Set<String> findUnresolvedTypes(ResolvableType type) {
+        return inspect(type).unresolved;
+    }
+
+    private ResponseTypes inspect(ResolvableType type) {
+        ResponseTypes types = new ResponseTypes();
+        collect(type, types, new HashSet<>());
+        return types;
+    }
+
+    private void collect(ResolvableType type, ResponseTypes types, Set<String> visited) {
+        if (type == ResolvableType.NONE) {
+            return;
+        }
+        if (type.isArray()) {
+            collect(type.getComponentType(), types, visited);
+            return;
+        }
+
+        //풀 수 없는 타입 변수와 와일드카드는 경계(Object)로 풀린다.
+        Class<?> clazz = type.resolve();
+        if (clazz == null || clazz == Object.class) {
+            types.unresolved.add(type.toString());
+            return;
+        }
+        if (type.hasUnresolvableGenerics()) {
+            types.unresolved.add(clazz.getName() + " (raw)");
+            return;
+        }
+        for (ResolvableType generic : type.getGenerics()) {
+            collect(generic, types, visited);
+        }
+
+        if (clazz.isAnnotationPresent(Entity.class)) {
+            types.entities.add(clazz);
+            return;
+        }
+        //DTO 필드는 이 애플리케이션 타입만 따라간다.(같은 제네릭 DTO라도 타입 인자가 다르면 다시 따라간다.)
+        if (!isApplicationType(clazz) || !visited.add(type.toString())) {
+            return;
+        }
+        ReflectionUtils.doWithFields(clazz,
+                field -> collect(ResolvableType.forField(field, type), types, visited),
+                field -> !Modifier.isStatic(field.getModifiers()) && !field.isAnnotationPresent(JsonIgnore.class));
+    }
+
+    private boolean isApplicationType(Class<?> clazz) {
+        String name = clazz.getName();
+        return basePackages.stream().anyMatch(basePackage -> name.startsWith(basePackage + "."));
+    }
+
+    private static class ResponseTypes {
+        private final Set<Class<?>> entities = new LinkedHashSet<>();
+        private final Set<String> unresolved = new LinkedHashSet<>();
+    }
+}
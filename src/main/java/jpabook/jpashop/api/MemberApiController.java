@@ -1,24 +1,41 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.processor.GenerateSerializer;
+import jpabook.jpashop.service.MemberImportFormat;
+import jpabook.jpashop.service.MemberImportService;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.MemberSummaryPage;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberApiController {
+    private static final int SEARCH_LIMIT = 20;
+
     private final MemberService memberService;
+    private final MemberImportService memberImportService;
+    private final ApiExecutor apiExecutor;
+    private final ObjectMapper objectMapper;
 
     /**
      * 엔티티를 직접 반환하면 안됨!!!!!!!!!
@@ -35,27 +52,55 @@ public class MemberApiController {
      * api 응답용 dto를 반환
      * @return
      */
+    @EntityResponse("엔티티 노출 예제, V2 참고")
     @GetMapping("/api/v1/members")
-    public List<Member> MembersV1() {
-        return memberService.findMembers();
+    public CompletableFuture<List<Member>> MembersV1(
+            @RequestParam(value = "lastId", required = false) Long lastId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return apiExecutor.read(() -> memberService.findMembers(lastId, limit));
     }
 
     /**
      * Dto를 통해서 노출하고 싶은 것만 노출!
+     * 엔티티 대신 id, name만 조회(projection)하고 id 순 keyset 페이징
+     * 다음 페이지는 nextLastId로, 전체 회원 수는 필요할 때만(count=true) 센다.
      * @return
      */
     @GetMapping("/api/v2/members")
-    public Result memberV2() {
-        List<Member> findMembers = memberService.findMembers();
-        /**
-         * List<Meber>를 List<MemberDto>에 담기
-         */
-        List<MemberDto> collect = findMembers
-                .stream()
-                .map(member -> new MemberDto(member.getName()))
-                .collect(Collectors.toList());
-
-        return new Result(collect.size(), collect);
+    public CompletableFuture<PageResult<List<MemberDto>>> memberV2(
+            @RequestParam(value = "lastId", required = false) Long lastId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count) {
+        return apiExecutor.read(() -> {
+            MemberSummaryPage page = memberService.findMemberSummaries(lastId, limit);
+            /**
+             * List<MemberSummary>를 List<MemberDto>에 담기
+             */
+            List<MemberDto> collect = page.getMembers()
+                    .stream()
+                    .map(member -> new MemberDto(member.getName()))
+                    .collect(Collectors.toList());
+
+            Long totalCount = count ? memberService.countMembers() : null;
+            return new PageResult<>(collect.size(), collect, page.getNextLastId(), totalCount);
+        });
+    }
+
+    /**
+     * 회원 이름 자동완성 (주문 화면)
+     * 이름 앞부분이 같은 회원을 이름 순으로 limit(최대 20)명만
+     */
+    @GetMapping("/api/v2/members/search")
+    public CompletableFuture<Result<List<MemberSearchDto>>> searchMembers(
+            @RequestParam("name") String name,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return apiExecutor.read(() -> {
+            List<MemberSearchDto> collect = memberService.searchMembers(name, Math.min(limit, SEARCH_LIMIT))
+                    .stream()
+                    .map(member -> new MemberSearchDto(member.getId(), member.getName()))
+                    .collect(Collectors.toList());
+            return new Result<>(collect.size(), collect);
+        });
     }
 
     @Data
@@ -67,6 +112,24 @@ public class MemberApiController {
 
     @Data
     @AllArgsConstructor
+    static class PageResult<T> {
+        private int count;
+        private T data;
+        private Long nextLastId;
+        private Long totalCount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class MemberSearchDto {
+        private Long id;
+        private String name;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @GenerateSerializer
+    @JsonSerialize(using = MemberApiController_MemberDtoJsonSerializer.class)
     static class MemberDto {
         String name;
     }
@@ -106,10 +169,38 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    /**
+     * 회원 일괄 등록 (NDJSON 또는 CSV, MemberImportFormat)
+     * 요청 본문을 한 줄씩 읽어서 chunk 단위로 커밋하고, chunk가 커밋될 때마다 진행 상황을 NDJSON 한 줄로 응답한다.
+     * 마지막 줄은 done=true인 전체 결과
+     */
+    @PostMapping(value = "/api/v2/members/import",
+            consumes = {MemberImportFormat.NDJSON_VALUE, MemberImportFormat.CSV_VALUE},
+            produces = MemberImportFormat.NDJSON_VALUE)
+    public void importMembers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+        response.setContentType(MemberImportFormat.NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = response.getWriter();
+        memberImportService.importMembers(request.getReader(), MemberImportFormat.of(request.getContentType()), progress -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(progress));
+                writer.write('\n');
+                writer.flush();
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("회원 일괄 등록 진행 상황 직렬화에 실패했습니다.", e);
+            }
+        });
+    }
+
     @PutMapping("api/v2/members/{id}")
     public UpdateMemberResponse updateMemberV2(@PathVariable("id") Long id,
                                                @RequestBody @Valid UpdateMemberRequest request) {
         memberService.update(id, request.getName(), request.getAddress());
+        //방금 수정한 회원이므로 replica 라우팅을 사용해도 primary에서 읽는다.(ReplicationContext)
         Member findMember = memberService.findMember(id);
         return new UpdateMemberResponse(findMember.getId(), findMember.getName(), findMember.getAddress());
     }
@@ -1,29 +1,59 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.exception.BadRequestException;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.exception.OrderTargetNotFoundException;
+import jpabook.jpashop.processor.GenerateSerializer;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryAssembler;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderIntakeService;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderStockFacade;
+import jpabook.jpashop.service.OrderTicket;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
-
 /**
  * <h1>권장 순서</h1>
  * <p>1. 엔티티 조회 방식으로 우선 접근</p>
@@ -58,23 +88,34 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderQueryAssembler orderQueryAssembler;
+    private final ObjectMapper objectMapper;
+    private final OrderStockFacade orderStockFacade;
+    private final OrderIntakeService orderIntakeService;
+    private final ApiExecutor apiExecutor;
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int MAX_CURSOR_LIMIT = 1000;
 
+    @EntityResponse("엔티티 노출 예제, V2 참고")
     @GetMapping("/api/v1/orders")
-    public Result ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
-        for (Order order : all) {
-            /**
-             * 강제 초기화
-             * hibernate5Module()에서 LAZY LOADING인것들 호출...
-             * 양방향 관계인것들은 @JsonIgnore를 설정해줘야함
-            */
-            order.getDelivery().getAddress();
-            order.getMember().getName();
-            List<OrderItem> orderItems = order.getOrderItems();
-            orderItems.stream().forEach(o -> o.getItem().getName());
-        }
+    public CompletableFuture<Result<List<Order>>> ordersV1() {
+        return apiExecutor.read(() -> {
+            List<Order> all = orderRepository.findAllByString(new OrderSearch());
+            for (Order order : all) {
+                /**
+                 * 강제 초기화
+                 * hibernate5Module()에서 LAZY LOADING인것들 호출...
+                 * 양방향 관계인것들은 @JsonIgnore를 설정해줘야함
+                */
+                order.getDelivery().getAddress();
+                order.getMember().getName();
+                List<OrderItem> orderItems = order.getOrderItems();
+                orderItems.stream().forEach(o -> o.getItem().getName());
+            }
 
-        return new Result(all);
+            return new Result<>(all);
+        });
     }
 
     /**
@@ -83,13 +124,15 @@ public class OrderApiController {
      * @return
      */
     @GetMapping("/api/v2/orders")
-    public Result ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<OrderDto> result = orders.stream()
-                .map(order -> new OrderDto(order))
-                .collect(Collectors.toList());
+    public CompletableFuture<Result<List<OrderDto>>> ordersV2() {
+        return apiExecutor.read(() -> {
+            List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+            List<OrderDto> result = orders.stream()
+                    .map(order -> new OrderDto(order))
+                    .collect(Collectors.toList());
 
-        return new Result(result);
+            return new Result<>(result);
+        });
     }
 
     /**
@@ -114,25 +157,27 @@ public class OrderApiController {
      * @return
      */
     @GetMapping("/api/v3/orders")
-    public Result ordersV3() {
-        List<Order> orders = orderRepository.findAllWithItem();
-
-        /**
-         * distinct가 없으면 ref와 id값이 동일함.
-         * order ref = jpabook.jpashop.domain.Order@6451be40, id = 4
-         * order ref = jpabook.jpashop.domain.Order@6451be40, id = 4
-         * order ref = jpabook.jpashop.domain.Order@22ae213, id = 11
-         * order ref = jpabook.jpashop.domain.Order@22ae213, id = 11
-         */
-        for (Order order : orders) {
-            System.out.println("order ref = "+order+", id = "+order.getId());
-        }
+    public CompletableFuture<Result<List<OrderDto>>> ordersV3() {
+        return apiExecutor.read(() -> {
+            List<Order> orders = orderRepository.findAllWithItem();
 
-        List<OrderDto> result = orders.stream()
-                .map(order -> new OrderDto(order))
-                .collect(Collectors.toList());
+            /**
+             * distinct가 없으면 ref와 id값이 동일함.
+             * order ref = jpabook.jpashop.domain.Order@6451be40, id = 4
+             * order ref = jpabook.jpashop.domain.Order@6451be40, id = 4
+             * order ref = jpabook.jpashop.domain.Order@22ae213, id = 11
+             * order ref = jpabook.jpashop.domain.Order@22ae213, id = 11
+             */
+            for (Order order : orders) {
+                System.out.println("order ref = "+order+", id = "+order.getId());
+            }
 
-        return new Result(result);
+            List<OrderDto> result = orders.stream()
+                    .map(order -> new OrderDto(order))
+                    .collect(Collectors.toList());
+
+            return new Result<>(result);
+        });
     }
 
     /**
@@ -168,17 +213,65 @@ public class OrderApiController {
      *  hibernate.default_batch_fetch_size는 100 ~ 1000개를 권장함
      */
     @GetMapping("/api/v3.1/orders")
-    public Result ordersV3_page(
+    public CompletableFuture<Result<List<OrderDto>>> ordersV3_page(
             @RequestParam(value = "offset", defaultValue = "0") int offset,
             @RequestParam(value = "limit", defaultValue = "100") int limit) {
-        //ToOne관계를 모두 페치조
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+        return apiExecutor.read(() -> {
+            //ToOne관계를 모두 페치조
+            List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
 
-        List<OrderDto> result = orders.stream()
-                .map(order -> new OrderDto(order))
-                .collect(Collectors.toList());
+            List<OrderDto> result = orders.stream()
+                    .map(order -> new OrderDto(order))
+                    .collect(Collectors.toList());
+
+            return new Result<>(result);
+        });
+    }
+
+    /**
+     * V3.1의 offset 페이징을 keyset(seek) 페이징으로 변경
+     *
+     * offset 페이징은 DB가 offset 만큼 읽고 버리므로 뒤 페이지일수록 느려진다.
+     * 마지막 주문의 (orderDate, orderId)를 cursor로 넘겨 그 다음부터 조회하므로 페이지 깊이와 상관없이 일정하다.
+     * 컬렉션(orderItems)은 V3.1과 마찬가지로 hibernate.default_batch_fetch_size로 IN 조회한다.
+     *
+     * 다음 페이지가 없으면 nextCursor는 null
+     * limit이 1 ~ MAX_CURSOR_LIMIT 밖이거나 cursor를 해석할 수 없으면 400
+     */
+    @GetMapping("/api/v3.2/orders")
+    public CompletableFuture<CursorResult<List<OrderDto>>> ordersV3_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_LIMIT) {
+            throw new BadRequestException("limit은 1 ~ " + MAX_CURSOR_LIMIT + " 사이여야 합니다. limit = " + limit);
+        }
+        OrderCursor orderCursor = decodeCursor(cursor);
+        return apiExecutor.read(() -> {
+            List<Order> orders = orderRepository.findAllWithMemberDelivery(orderCursor, limit);
+
+            List<OrderDto> result = orders.stream()
+                    .map(order -> new OrderDto(order))
+                    .collect(Collectors.toList());
+
+            String nextCursor = null;
+            if (orders.size() == limit) {
+                Order last = orders.get(orders.size() - 1);
+                nextCursor = new OrderCursor(last.getOrderDate(), last.getId()).encode();
+            }
+
+            return new CursorResult<>(result, nextCursor);
+        });
+    }
 
-        return new Result(result);
+    private static OrderCursor decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            return OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
     }
 
     /**
@@ -192,8 +285,8 @@ public class OrderApiController {
      * @return
      */
     @GetMapping("/api/v4/orders")
-    public Result ordersV4() {
-        return new Result(orderQueryRepository.findOrderQueryDtos());
+    public CompletableFuture<Result<List<OrderQueryDto>>> ordersV4() {
+        return apiExecutor.read(() -> new Result<>(orderQueryRepository.findOrderQueryDtos()));
     }
 
     /**
@@ -203,8 +296,20 @@ public class OrderApiController {
      * @return
      */
     @GetMapping("/api/v5/orders")
-    public Result ordersV5() {
-        return new Result(orderQueryRepository.findAllByDto_optimization());
+    public CompletableFuture<Result<List<OrderQueryDto>>> ordersV5() {
+        return apiExecutor.read(() -> new Result<>(orderQueryRepository.findAllByDto_optimization()));
+    }
+
+    /**
+     * V5 병렬 조회 + 페이징
+     * 주문 id를 chunk로 나눠서 주문, 주문상품을 별도 커넥션에서 동시에 조회하고 id 순서대로 붙인다.
+     * 병렬 조회는 트랜잭션 밖에서 실행해야 하므로 apiExecutor를 거치지 않는다.
+     */
+    @GetMapping("/api/v5.1/orders")
+    public Result<List<OrderQueryDto>> ordersV5_parallel(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return new Result<>(orderQueryAssembler.findAllByDto_parallel(offset, limit));
     }
 
     /**
@@ -213,34 +318,181 @@ public class OrderApiController {
      *  쿼리는 1번이지만, 조인으로 인해 DB에서 애플리에키션에 전달하는 데이터 중복 데이터가 추가되므로 상황에 따라 V5 보다 더 느릴 수도 있따.
      *  애플리케이션에서 추가 작업이 크다.
      *  페이징 불가(Order를 기준으로는 안된다.!!, OrderItem 기준으로는 가)
+     *
+     * -> order_id 순으로 정렬해서 스크롤로 읽고 OrderFlatGrouper로 주문 단위로 묶는다.
+     *    groupingBy처럼 전체 row를 Map에 담지 않고, 결과 순서가 유지되며, 주문 기준 offset/limit이 가능하다.
+     *    (offset 이전 주문의 row는 DB에서 읽기는 한다.)
      * @return
      */
     @GetMapping("/api/v6/orders")
-    public Result ordersV6() {
-
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-
-        List<OrderQueryDto> collect = flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress())
-                        , mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(
-                        e.getKey().getOrderId(), e.getKey().getName(),
-                        e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
-                        e.getKey().getAddress(), e.getValue())
-                )
-                .collect(toList());
-
-        return new Result(collect);
+    public CompletableFuture<Result<List<OrderQueryDto>>> ordersV6(
+            @RequestParam(value = "offset", defaultValue = "0") long offset,
+            @RequestParam(value = "limit", required = false) Long limit) {
+        return apiExecutor.read(() -> new Result<>(
+                orderQueryRepository.findAllByDto_flat(offset, limit == null ? Long.MAX_VALUE : limit)));
+    }
+
+    /**
+     * 전체 주문 export (NDJSON)
+     * V5, V6는 전체 결과를 List로 만든 다음 응답하므로 주문 테이블이 크면 OOM이 발생할 수 있다.
+     * 스크롤로 읽은 주문을 한 줄에 하나씩 바로 응답에 쓰므로 메모리에는 주문 하나만 올라간다.
+     */
+    @GetMapping("/api/v7/orders/export")
+    public void ordersExport(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+
+        //PrintWriter는 IOException을 삼키므로 클라이언트가 연결을 끊어도 끝까지 읽게 된다. OutputStream에 직접 쓴다.
+        OutputStream out = response.getOutputStream();
+        try {
+            orderQueryRepository.streamAllByDto_flat(EXPORT_FETCH_SIZE, order -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(order));
+                    out.write('\n');
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("주문 export 중 직렬화에 실패했습니다. orderId = " + order.getOrderId(), e);
+                } catch (IOException e) {
+                    //연결이 끊기면 더 읽지 않고 스크롤(커넥션)을 바로 닫는다.
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * 일괄 주문
+     * B2B 대량 주문처럼 여러 주문을 요청 한번, 트랜잭션 한번으로 저장한다.
+     * 회원, 상품은 IN 쿼리로 한번에 조회하고 insert는 jdbc batch로 묶인다.
+     * 없는 회원, 상품이 있으면 아무것도 주문하지 않고 400으로 응답한다.
+     * hot 상품은 HotStockLedger에서 재고를 예약한다.(OrderStockFacade)
+     * 같은 상품을 주문한 다른 주문과 충돌하면 재시도하고, 그래도 충돌하면 409로 응답한다.
+     */
+    @PostMapping("/api/v1/orders/batch")
+    public CreateOrderBatchResponse saveOrderBatch(@RequestBody @Valid CreateOrderBatchRequest request) {
+        List<OrderLine> orderLines = request.getOrders().stream()
+                .map(o -> new OrderLine(o.getMemberId(), o.getItemId(), o.getCount()))
+                .collect(Collectors.toList());
+
+        List<Long> orderIds = orderStockFacade.orderBatch(orderLines);
+
+        return new CreateOrderBatchResponse(orderIds.size(), orderIds);
+    }
+
+    /**
+     * 비동기 주문
+     * 주문을 대기열에 넣고 접수 번호를 바로 돌려준다.(202 Accepted)
+     * 처리 결과(주문 id)는 접수 번호로 조회한다.
+     */
+    @PostMapping("/api/v2/orders")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public OrderTicketDto saveOrderAsync(@RequestBody @Valid CreateOrderRequest request) {
+        OrderTicket ticket = orderIntakeService.submit(
+                new OrderLine(request.getMemberId(), request.getItemId(), request.getCount()));
+        return new OrderTicketDto(ticket);
+    }
+
+    @GetMapping("/api/v2/orders/tickets/{ticketId}")
+    public ResponseEntity<OrderTicketDto> orderTicket(@PathVariable String ticketId) {
+        OrderTicket ticket = orderIntakeService.findTicket(ticketId);
+        if (ticket == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new OrderTicketDto(ticket));
+    }
+
+    /**
+     * 대기열이 가득 차면 429로 응답해서 클라이언트가 잠시 후 재시도하게 한다.
+     */
+    @ExceptionHandler(OrderQueueFullException.class)
+    public ResponseEntity<Result<String>> orderQueueFull(OrderQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new Result<>(e.getMessage()));
+    }
+
+    /**
+     * 재시도해도 다른 주문과 재고 변경이 계속 충돌하면 409로 응답해서 클라이언트가 다시 요청하게 한다.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Result<String>> stockConflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new Result<>("다른 주문과 재고 변경이 충돌했습니다. 다시 시도하세요."));
+    }
+
+    /**
+     * 일괄 주문에 없는 회원, 상품이 있으면 400으로 없는 id를 모두 알려준다.
+     */
+    @ExceptionHandler(OrderTargetNotFoundException.class)
+    public ResponseEntity<OrderTargetNotFoundDto> orderTargetNotFound(OrderTargetNotFoundException e) {
+        return ResponseEntity.badRequest()
+                .body(new OrderTargetNotFoundDto(e.getMessage(), e.getMemberIds(), e.getItemIds()));
     }
 
+    @Getter
+    static class OrderTicketDto {
+        private String ticketId;
+        private OrderTicket.Status status;
+        private Long orderId;
+        private String message;
+        private LocalDateTime acceptedAt;
+        private LocalDateTime finishedAt;
+
+        public OrderTicketDto(OrderTicket ticket) {
+            this.ticketId = ticket.getId();
+            this.status = ticket.getStatus();
+            this.orderId = ticket.getOrderId();
+            this.message = ticket.getMessage();
+            this.acceptedAt = ticket.getAcceptedAt();
+            this.finishedAt = ticket.getFinishedAt();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderTargetNotFoundDto {
+        private String message;
+        private Set<Long> memberIds;
+        private Set<Long> itemIds;
+    }
+
+    @Data
+    static class CreateOrderBatchRequest {
+        @NotEmpty
+        @Size(max = 1000)
+        @Valid
+        private List<CreateOrderRequest> orders;
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderBatchResponse {
+        private int count;
+        private List<Long> orderIds;
+    }
 
     @Getter
+    @GenerateSerializer
+    @JsonSerialize(using = OrderApiController_OrderDtoJsonSerializer.class)
     static class OrderDto {
         private Long orderId;
         private String name;
         private LocalDateTime orderDate;
         private Address address;
+        private int totalPrice;
+        private int itemCount;
 //        private List<OrderItem> orderItems;
         private List<OrderItemDto> orderItems;
         public OrderDto(Order order) {
@@ -248,6 +500,8 @@ public class OrderApiController {
             this.name = order.getMember().getName();
             this.orderDate = order.getOrderDate();
             this.address = order.getDelivery().getAddress();
+            this.totalPrice = order.getTotalPrice();
+            this.itemCount = order.getItemCount();
             /**
              * Dto에 단순하게 감싸서 보내면 안된다.
              * 완전히 엔티티의 의존을 끊어야함!
@@ -262,6 +516,8 @@ public class OrderApiController {
         }
 
         @Getter
+        @GenerateSerializer
+        @JsonSerialize(using = OrderApiController_OrderDto_OrderItemDtoJsonSerializer.class)
         static class OrderItemDto {
             private String itemName;
             private int orderPrice;
@@ -279,4 +535,11 @@ public class OrderApiController {
     static class Result<T> {
         private T data;
     }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private T data;
+        private String nextCursor;
+    }
 }
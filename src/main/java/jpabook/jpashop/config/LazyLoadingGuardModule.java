@@ -0,0 +1,101 @@
+package jpabook.jpashop.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.hibernate.Hibernate;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 초기화되지 않은 지연 로딩(프록시, 컬렉션)을 만나면 응답을 쓰지 않고 실패한다.
+ *
+ * Hibernate5Module은 초기화되지 않은 지연 로딩을 null로 쓰므로 응답이 조용히 비어 보일 수 있다.
+ * jpashop.json.fail-on-lazy-loading=true 이면 이 모듈을 등록해서 어떤 필드가 초기화되지 않았는지 바로 드러나게 한다.
+ * (개발, 테스트용. 엔티티를 노출하는 V1 예제는 일부 연관관계를 초기화하지 않으므로 실패한다.)
+ *
+ * @GenerateSerializer로 생성된 serializer는 BeanSerializerModifier를 거치지 않으므로 이 모듈을 등록하면 끄고
+ * 해당 DTO도 BeanSerializer(GuardedPropertyWriter)로 쓴다.
+ */
+public class LazyLoadingGuardModule extends SimpleModule {
+
+    public LazyLoadingGuardModule() {
+        super("LazyLoadingGuardModule");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> beanProperties) {
+                return beanProperties.stream()
+                        .map(GuardedPropertyWriter::new)
+                        .collect(toList());
+            }
+        });
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        ObjectMapper mapper = context.getOwner();
+        mapper.setAnnotationIntrospectors(
+                new GeneratedSerializerDisabler(mapper.getSerializationConfig().getAnnotationIntrospector()),
+                mapper.getDeserializationConfig().getAnnotationIntrospector());
+    }
+
+    /**
+     * 생성된 serializer를 지정한 @JsonSerialize(using = ...)를 무시한다.
+     * 생성된 serializer 이름은 SerializerProcessor.serializerName()과 같다.(OrderApiController.OrderDto -> OrderApiController_OrderDtoJsonSerializer)
+     */
+    static class GeneratedSerializerDisabler extends AnnotationIntrospectorPair {
+
+        GeneratedSerializerDisabler(AnnotationIntrospector delegate) {
+            super(delegate, NopAnnotationIntrospector.instance);
+        }
+
+        @Override
+        public Object findSerializer(Annotated a) {
+            Object serializer = super.findSerializer(a);
+            return a instanceof AnnotatedClass && isGenerated(a.getRawType(), serializer) ? null : serializer;
+        }
+
+        private static boolean isGenerated(Class<?> dto, Object serializer) {
+            if (!(serializer instanceof Class)) {
+                return false;
+            }
+            String packageName = dto.getPackageName();
+            String simpleName = packageName.isEmpty() ? dto.getName() : dto.getName().substring(packageName.length() + 1);
+            String generatedName = (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + "JsonSerializer";
+            return ((Class<?>) serializer).getName().equals(generatedName);
+        }
+    }
+
+    static class GuardedPropertyWriter extends BeanPropertyWriter {
+
+        GuardedPropertyWriter(BeanPropertyWriter base) {
+            super(base);
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            Object value = get(bean);
+            if (value != null && !Hibernate.isInitialized(value)) {
+                throw JsonMappingException.from(gen, "초기화되지 않은 지연 로딩을 직렬화할 수 없습니다. "
+                        + bean.getClass().getSimpleName() + "." + getName()
+                        + " (트랜잭션 안에서 DTO로 변환하거나 페치 조인하세요.)");
+            }
+            super.serializeAsField(bean, gen, prov);
+        }
+    }
+}
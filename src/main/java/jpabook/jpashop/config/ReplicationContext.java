@@ -0,0 +1,59 @@
+package jpabook.jpashop.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * read-your-writes
+ * 스레드에서 쓰기 트랜잭션이 실행되면 표시해두고, 이후 읽기 전용 트랜잭션도 primary에서 읽게 한다.
+ * (방금 쓴 데이터가 아직 replica에 복제되지 않았을 수 있다.)
+ *
+ * 표시는 작업 단위까지만 유지한다.
+ * 요청은 ReplicationContextInterceptor가 begin(), end()로 묶으므로 요청이 끝날 때까지 유지된다.
+ * 요청 밖(주문 대기열 처리 스레드, 스케줄러 등)에서는 표시한 트랜잭션이 끝나면 지운다.
+ * 그렇지 않으면 재사용되는 스레드가 한번 쓴 다음부터 모든 읽기를 primary에서 하게 된다.
+ */
+public final class ReplicationContext {
+
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> SCOPED = new ThreadLocal<>();
+
+    private ReplicationContext() {
+    }
+
+    /**
+     * 여러 트랜잭션을 묶는 작업(요청) 시작. end()까지 쓰기 표시가 유지된다.
+     */
+    public static void begin() {
+        WRITTEN.remove();
+        SCOPED.set(Boolean.TRUE);
+    }
+
+    public static void end() {
+        WRITTEN.remove();
+        SCOPED.remove();
+    }
+
+    public static void markWritten() {
+        if (hasWritten()) {
+            return;
+        }
+        WRITTEN.set(Boolean.TRUE);
+        if (SCOPED.get() == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    public static boolean hasWritten() {
+        return WRITTEN.get() != null;
+    }
+
+    public static void clear() {
+        WRITTEN.remove();
+    }
+}
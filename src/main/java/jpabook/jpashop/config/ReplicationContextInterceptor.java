@@ -0,0 +1,29 @@
+package jpabook.jpashop.config;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 요청마다 read-your-writes 표시를 요청 단위로 묶는다.
+ * 톰캣 스레드는 재사용되므로 요청이 끝나면(비동기 처리로 넘어간 경우 포함) 지운다.
+ */
+public class ReplicationContextInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicationContext.begin();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicationContext.end();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicationContext.end();
+    }
+}
@@ -0,0 +1,50 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * jpashop.datasource.replication.enabled=true 이면 기본 DataSource 대신 primary/replica 라우팅 DataSource를 등록한다.
+ *
+ * DataSource 빈은 하나만 등록한다.(p6spy가 DataSource 빈마다 감싸므로 풀까지 빈으로 등록하면 sql이 두번 기록된다.)
+ * 커넥션 풀은 ReplicationDataSources 빈이 가지고 있다가 종료시 닫는다.
+ * 풀이 빈이 아니라서 스프링 부트가 hikaricp 지표를 등록하지 않으므로 직접 등록한다.(replica는 primary 설정을 복사)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.replication", name = "enabled", havingValue = "true")
+public class ReplicationDataSourceConfig implements WebMvcConfigurer {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariConfig primaryHikariConfig(MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("primary");
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return config;
+    }
+
+    @Bean(destroyMethod = "close")
+    ReplicationDataSources replicationDataSources(HikariConfig primaryHikariConfig, ReplicationProperties properties) {
+        return new ReplicationDataSources(primaryHikariConfig, properties);
+    }
+
+    @Bean
+    DataSource dataSource(ReplicationDataSources replicationDataSources) {
+        return new LazyConnectionDataSourceProxy(new ReplicationRoutingDataSource(replicationDataSources));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReplicationContextInterceptor());
+    }
+}
@@ -0,0 +1,167 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * primary, replica 커넥션 풀
+ *
+ * replica 선택
+ * - ROUND_ROBIN: 정상 replica를 돌아가면서 사용
+ * - LEAST_CONNECTIONS: 사용중인 커넥션이 가장 적은 replica 사용(느린 쿼리가 한쪽에 몰리는 경우)
+ *
+ * 복제 지연 확인(checkLag)에서 지연이 maxLag를 넘거나 연결할 수 없는 replica는 제외하고,
+ * 정상 replica가 없으면 primary에서 읽는다.
+ */
+@Slf4j
+public class ReplicationDataSources implements AutoCloseable {
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicationProperties properties;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicationDataSources(HikariConfig primaryConfig, ReplicationProperties properties) {
+        this.properties = properties;
+        this.primary = new HikariDataSource(primaryConfig);
+
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicationProperties.Replica replica = properties.getReplicas().get(i);
+            String name = StringUtils.hasText(replica.getName()) ? replica.getName() : "replica-" + i;
+
+            HikariConfig config = new HikariConfig();
+            primaryConfig.copyStateTo(config);
+            config.setPoolName(name);
+            config.setJdbcUrl(replica.getJdbcUrl());
+            if (replica.getUsername() != null) {
+                config.setUsername(replica.getUsername());
+                config.setPassword(replica.getPassword());
+            }
+            config.setMaximumPoolSize(replica.getMaximumPoolSize());
+            config.setReadOnly(true);
+            replicas.add(new Replica(name, new HikariDataSource(config)));
+        }
+        this.replicas = Collections.unmodifiableList(replicas);
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return 읽기에 사용할 replica, 정상 replica가 없으면 null
+     */
+    public Replica selectReplica() {
+        List<Replica> healthy = replicas.stream().filter(Replica::isHealthy).collect(toList());
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        if (properties.getSelection() == ReplicationProperties.Selection.LEAST_CONNECTIONS) {
+            return healthy.stream().min(Comparator.comparingInt(Replica::getActiveConnections)).get();
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * replica 복제 지연 확인
+     */
+    @Scheduled(fixedDelayString = "${jpashop.datasource.replication.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        long maxLagMillis = properties.getMaxLag().toMillis();
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try {
+                long lagMillis = readLagMillis(replica.dataSource);
+                replica.lagMillis = lagMillis;
+                healthy = lagMillis <= maxLagMillis;
+            } catch (SQLException e) {
+                log.warn("replica 상태 확인 실패 replica={}", replica.name, e);
+                healthy = false;
+            }
+            if (replica.healthy != healthy) {
+                log.warn("replica 상태 변경 replica={}, healthy={}, lagMillis={}", replica.name, healthy, replica.lagMillis);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    private long readLagMillis(HikariDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!StringUtils.hasText(properties.getLagQuery())) {
+                if (!connection.isValid(1)) {
+                    throw new SQLException("유효하지 않은 커넥션입니다.");
+                }
+                return 0;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+                //지연 값이 없으면(복제가 멈춘 경우 등) 제외한다.
+                if (!resultSet.next() || resultSet.getObject(1) == null) {
+                    return Long.MAX_VALUE;
+                }
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+        primary.close();
+    }
+
+    public static class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+        private volatile long lagMillis;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public HikariDataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        int getActiveConnections() {
+            //풀은 첫 커넥션을 요청할 때 만들어진다.
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 replica로 보내는 설정
+ * primary는 기존 spring.datasource.hikari 설정을 그대로 사용한다.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.datasource.replication")
+public class ReplicationProperties {
+
+    private boolean enabled = false;
+
+    private Selection selection = Selection.ROUND_ROBIN;
+
+    /**
+     * replica에서 실행해서 복제 지연(ms)을 읽는 sql (비워두면 연결만 확인한다.)
+     * ex) PostgreSQL: select extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000
+     */
+    private String lagQuery;
+
+    /**
+     * 복제 지연이 이보다 크면 replica를 쓰지 않고 primary에서 읽는다.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    @Getter @Setter
+    public static class Replica {
+        private String name;
+        private String jdbcUrl;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,51 @@
+package jpabook.jpashop.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica, 나머지는 primary로 보낸다.
+ *
+ * 트랜잭션 매니저는 readOnly 여부를 커넥션을 얻은 다음에 설정하므로
+ * 반드시 LazyConnectionDataSourceProxy로 감싸서 첫 sql을 실행할 때 커넥션을 고르게 해야 한다.
+ *
+ * 쓰기 트랜잭션을 실행한 스레드는 작업(요청, 요청 밖에서는 그 트랜잭션)이 끝날 때까지 읽기도 primary에서 한다.(read-your-writes, ReplicationContext)
+ * 트랜잭션 밖의 조회(OSIV 지연 로딩 등)도 primary에서 한다.
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final ReplicationDataSources dataSources;
+
+    public ReplicationRoutingDataSource(ReplicationDataSources dataSources) {
+        this.dataSources = dataSources;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, dataSources.getPrimary());
+        dataSources.getReplicas().forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(dataSources.getPrimary());
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReplicationContext.markWritten();
+            return PRIMARY;
+        }
+        if (ReplicationContext.hasWritten()) {
+            return PRIMARY;
+        }
+        ReplicationDataSources.Replica replica = dataSources.selectReplica();
+        return replica == null ? PRIMARY : replica.getName();
+    }
+}
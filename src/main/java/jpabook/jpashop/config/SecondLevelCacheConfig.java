@@ -0,0 +1,30 @@
+package jpabook.jpashop.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * 2차 캐시 CacheManager를 SessionFactory마다 따로 만든다.
+ *
+ * 지정하지 않으면 hibernate-jcache는 JVM에 하나인 기본 CacheManager를 쓰므로
+ * 한 JVM에 SessionFactory가 여럿이면(테스트 컨텍스트마다 다른 DB) 같은 region을 나눠 쓴다.
+ * DB마다 id가 겹치므로 다른 DB의 상품이 캐시에서 읽히고, READ_WRITE는 insert할 때 이미 있는 항목을 덮어쓰지 않는다.
+ * 설정(application.conf)은 URI와 관계없이 같이 적용되고, CacheManager는 SessionFactory가 닫힐 때 같이 닫힌다.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheManager(
+            @Value("${spring.jpa.properties.hibernate.javax.cache.provider}") String provider) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, Caching.getCachingProvider(provider)
+                .getCacheManager(URI.create("jpashop:second-level-cache:" + UUID.randomUUID()), getClass().getClassLoader()));
+    }
+}
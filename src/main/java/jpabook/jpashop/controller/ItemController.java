@@ -2,6 +2,7 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.CatalogService;
 import jpabook.jpashop.service.ItemService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 public class ItemController {
 
     private final ItemService itemService;
+    private final CatalogService catalogService;
 
     @GetMapping("/items/new")
     public String createForm(Model model) {
@@ -40,7 +42,7 @@ public class ItemController {
 
     @GetMapping("/items")
     public String list(Model model) {
-        model.addAttribute("items", itemService.findItem());
+        model.addAttribute("items", catalogService.getItems());
 
         return "/items/itemList";
     }
@@ -3,12 +3,14 @@ package jpabook.jpashop.controller;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.MemberSummaryPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.validation.Valid;
 
@@ -42,9 +44,16 @@ public class MemberController {
         return "redirect:/";
     }
 
+    /**
+     * 회원 목록 (id 순으로 한 페이지씩, 다음 페이지는 마지막 회원 id로)
+     */
     @GetMapping("/members")
-    public String list(Model model) {
-        model.addAttribute("members", memberService.findMembers());
+    public String list(@RequestParam(value = "lastId", required = false) Long lastId, Model model) {
+        MemberSummaryPage page = memberService.findMemberSummaries(lastId, MemberService.MAX_PAGE_SIZE);
+        model.addAttribute("members", page.getMembers());
+        if (page.getNextLastId() != null) {
+            model.addAttribute("nextLastId", page.getNextLastId());
+        }
 
         return "members/memberList";
     }
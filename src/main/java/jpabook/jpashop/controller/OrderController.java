@@ -1,9 +1,9 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.service.ItemService;
-import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.CatalogService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderStockFacade;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,14 +14,16 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     private final OrderService orderService;
-    private final MemberService memberService;
-    private final ItemService itemService;
+    private final OrderStockFacade orderStockFacade;
+    private final CatalogService catalogService;
 
+    /**
+     * 주문 회원은 전체 목록 대신 이름으로 검색해서 고른다.(/api/v2/members/search)
+     */
     @GetMapping("/order")
     public String createForm(Model model) {
 
-        model.addAttribute("members", memberService.findMembers());
-        model.addAttribute("items", itemService.findItem());
+        model.addAttribute("items", catalogService.getItems());
 
         return "order/orderForm";
     }
@@ -31,7 +33,7 @@ public class OrderController {
                         @RequestParam("itemId") Long itemId,
                         @RequestParam("count") int count) {
 
-        orderService.order(memberId, itemId, count);
+        orderStockFacade.order(memberId, itemId, count);
 
         return "redirect:/orders";
     }
@@ -12,7 +12,7 @@ import java.util.List;
 @Getter @Setter
 public class Category {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     @Column(name = "category_id")
     private Long id;
 
@@ -46,9 +46,14 @@ public class Category {
 
     /***
      * 연관관계 편의 메서드
+     * 이미 부모가 있으면 이전 부모의 자식 목록에서 뺀다.(하위 카테고리 이동)
+     * closure 테이블과 트리 캐시는 CategoryService에서 같이 변경해야 한다.
      * @param child
      */
     public void changeChildCategory(Category child) {
+        if (child.getParent() != null) {
+            child.getParent().getChild().remove(child);
+        }
         this.child.add(child);
         child.setParent(this);
     }
@@ -0,0 +1,53 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/***
+ * 카테고리 closure 테이블
+ * 조상 -> 자손 경로마다 row 하나 (자기 자신도 depth 0으로 포함)
+ *
+ * 카테고리 A > B > C 이면
+ * (A, A, 0) (A, B, 1) (A, C, 2) (B, B, 0) (B, C, 1) (C, C, 0)
+ *
+ * ancestor_id = :id 한번으로 하위 카테고리 전체를 찾을 수 있으므로 단계마다 parent/child를 따라가지 않아도 된다.
+ * 카테고리와 연관관계를 맺지 않고 id만 가진다. 변경은 CategoryRepository가 insert-select로 한다.
+ */
+@Entity
+@Table(name = "category_closure", indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, ancestor_id") //조상 찾기(이동)
+})
+@IdClass(CategoryClosure.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    private int depth;
+
+    public CategoryClosure(Long ancestorId, Long descendantId, int depth) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+        this.depth = depth;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -10,7 +10,7 @@ import javax.persistence.*;
 @Getter @Setter
 public class Delivery {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     @Column(name = "delivery_id")
     private Long id;
 
@@ -0,0 +1,56 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/***
+ * 배송 상태 변경 outbox
+ * 배송 상태가 바뀌는 트랜잭션 안에서 같이 insert 되므로, 주문이 커밋되면 이벤트도 반드시 남는다.
+ * 배송 시스템 같은 외부 consumer는 publishedAt이 없는 row를 id 순서로 읽어가고 발행 후 표시한다.
+ *
+ * 주문, 배송과 연관관계를 맺지 않고 id만 가진다.(이벤트는 변경 시점의 값을 그대로 보관해야 한다.)
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_delivery_outbox_published_at", columnList = "publishedAt, outbox_id"), //발행할 이벤트
+        @Index(name = "idx_delivery_outbox_order_id", columnList = "orderId, outbox_id") //주문별 이벤트
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DeliveryOutbox {
+
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
+    @Column(name = "outbox_id")
+    private Long id;
+
+    private Long orderId;
+
+    private Long deliveryId;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus deliveryStatus;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt;
+
+    //==생성 메서드==//
+    public static DeliveryOutbox of(Order order) {
+        DeliveryOutbox outbox = new DeliveryOutbox();
+        outbox.orderId = order.getId();
+        outbox.deliveryId = order.getDelivery().getId();
+        outbox.deliveryStatus = order.getDelivery().getDeliveryStatus();
+        outbox.createdAt = LocalDateTime.now();
+        return outbox;
+    }
+
+    //비지니스 로직==//
+    public void markPublished() {
+        this.publishedAt = LocalDateTime.now();
+    }
+}
@@ -13,12 +13,17 @@ import java.util.Arrays;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "orderDate, order_id"), //keyset 페이징
+        @Index(name = "idx_orders_member_id", columnList = "member_id"), //회원 -> 주문 조인
+        @Index(name = "idx_orders_status", columnList = "status") //주문 검색(상태)
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     @Column(name = "order_id")
     private Long id;
 
@@ -59,6 +64,17 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    /***
+     * 주문 가격 합계, 주문 수량 합계
+     * 조회할 때마다 orderItems를 초기화해서 더하지 않도록 주문상품을 추가할 때 함께 계산해서 저장한다.
+     * changeOrderItem 으로만 바뀐다.
+     */
+    @Setter(AccessLevel.NONE)
+    private int totalPrice;
+
+    @Setter(AccessLevel.NONE)
+    private int itemCount;
+
     /***
      * 연관관계 편의 메서드
      */
@@ -81,6 +97,8 @@ public class Order {
     public void changeOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
+        itemCount += orderItem.getCount();
     }
 
     public void changeDelivery(Delivery delivery) {
@@ -124,20 +142,6 @@ public class Order {
          *         }
          */
         orderItems.forEach(OrderItem::cancel);
-    }
-
-    //==조회 로직==//
-    /***
-     * 전체 주문 가격 조회
-     */
-    public int getTotalPrice() {
-        int totalPrice = orderItems.stream().mapToInt(OrderItem::getTotalPrice).sum();
-        /***
-         *         int totalPrice = 0;
-         *         for (OrderItem orderItem : orderItems) {
-         *             totalPrice += orderItem.getTotalPrice();
-         *         }
-         */
-        return totalPrice;
+        //취소해도 주문 가격, 수량 합계는 주문 당시 값 그대로 둔다.
     }
 }
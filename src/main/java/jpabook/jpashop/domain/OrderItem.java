@@ -10,11 +10,15 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_order_item_order_id", columnList = "order_id") //주문 -> 주문상품 (batch fetch, IN 쿼리)
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -44,12 +48,20 @@ public class OrderItem {
 
     //==생성 메서드==//
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = createOrderItemWithoutStock(item, orderPrice, count);
+
+        item.removeStock(count);
+        return orderItem;
+    }
+
+    /***
+     * 재고를 이미 차감한 경우 사용(조건부 update로 DB에서 차감 등)
+     */
+    public static OrderItem createOrderItemWithoutStock(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
-
-        item.removeStock(count);
         return orderItem;
     }
 
@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 모든 엔티티가 같이 쓰는 id 생성 전략
+ *
+ * 그냥 @GeneratedValue를 쓰면 hibernate_sequence 하나를 insert마다 호출한다.
+ * 엔티티마다 시퀀스(<엔티티명>_seq)를 두고 increment_size 만큼 한번에 할당받아서 메모리에서 나눠 쓴다.(pooled-lo)
+ * 시퀀스 호출이 increment_size 번에 한번으로 줄고, insert 전에 id를 알 수 있으므로 jdbc batch로 묶을 수 있다.
+ *
+ * increment_size는 spring.jpa.properties.jpashop.id.increment_size 로 설정한다.(기본 50)
+ * 애플리케이션 여러 대가 같은 시퀀스를 써도 할당 구간이 겹치지 않는다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "pooled_sequence";
+    public static final String INCREMENT_SIZE_SETTING = "jpashop.id.increment_size";
+
+    private static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configurationService = serviceRegistry.getService(ConfigurationService.class);
+        int incrementSize = ConfigurationHelper.getInt(INCREMENT_SIZE_SETTING, configurationService.getSettings(), DEFAULT_INCREMENT_SIZE);
+
+        params.setProperty(CONFIG_PREFER_SEQUENCE_PER_ENTITY, "true");
+        params.setProperty(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.setProperty(OPT_PARAM, incrementSize > 1 ? "pooled-lo" : "none");
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,45 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/***
+ * hot 상품 재고 예약 기록
+ * HotStockLedger가 메모리에서 예약한 재고를 주문과 같은 트랜잭션에 insert 하므로, 주문이 커밋되면 차감할 재고도 반드시 남는다.
+ * 주기적으로 상품별로 모아서 item.stock_quantity에 반영하고 삭제한다.(재시작하면 남은 기록부터 반영한다.)
+ *
+ * 주문, 상품과 연관관계를 맺지 않고 id만 가진다.(item row를 건드리지 않는 것이 목적이다.)
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_stock_reservation_item_id", columnList = "itemId"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
+    @Column(name = "stock_reservation_id")
+    private Long id;
+
+    private Long itemId;
+
+    private Long orderId;
+
+    private int quantity;
+
+    private LocalDateTime createdAt;
+
+    //==생성 메서드==//
+    public static StockReservation of(Long itemId, Long orderId, int quantity) {
+        StockReservation reservation = new StockReservation();
+        reservation.itemId = itemId;
+        reservation.orderId = orderId;
+        reservation.quantity = quantity;
+        reservation.createdAt = LocalDateTime.now();
+        return reservation;
+    }
+}
@@ -1,22 +1,36 @@
 package jpabook.jpashop.domain.item;
 
 import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.PooledSequenceGenerator;
 import jpabook.jpashop.exception.NotEnoughStockException;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/***
+ * 2차 캐시
+ * 상품 단건 조회(em.find)는 DB에 가지 않고 캐시에서 읽는다.
+ * 하위 타입(Book, Album, Movie)도 같은 region에 캐시된다.
+ * 변경감지로 수정하면 커밋시 캐시도 갱신되고, 벌크 update는 region 전체를 비운다.
+ */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_item_dtype", columnList = "dtype") //하위 타입 조회(Book, Album, Movie)
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter @Setter
 public abstract class Item {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     @Column(name = "item_id")
     private Long id;
 
@@ -24,6 +38,13 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    /***
+     * 낙관적 락
+     * 동시에 같은 상품의 재고를 변경하면 나중에 커밋하는 쪽이 실패한다.(lost update 방지)
+     */
+    @Version
+    private Long version;
+
     /***
      * 카테고리와 상품은 다대다 양방향관계이다.
      * 다대다 양방향 관계는 관계형데이터 베이스에서는 풀지 못하여
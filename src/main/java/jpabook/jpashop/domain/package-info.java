@@ -0,0 +1,8 @@
+/**
+ * 엔티티 id는 모두 PooledSequenceGenerator로 생성한다.
+ * 생성기 이름은 전역이므로 domain.item 패키지의 엔티티도 같이 사용한다.
+ */
+@GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = "jpabook.jpashop.domain.PooledSequenceGenerator")
+package jpabook.jpashop.domain;
+
+import org.hibernate.annotations.GenericGenerator;
@@ -0,0 +1,26 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * api 처리 대기열이 가득 찼을 때 (503)
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ApiBusyException extends RuntimeException {
+    public ApiBusyException() {
+        super();
+    }
+
+    public ApiBusyException(String message) {
+        super(message);
+    }
+
+    public ApiBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ApiBusyException(Throwable cause) {
+        super(cause);
+    }
+}
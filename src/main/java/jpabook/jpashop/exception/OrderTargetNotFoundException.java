@@ -0,0 +1,27 @@
+package jpabook.jpashop.exception;
+
+import java.util.Set;
+
+/**
+ * 주문할 회원, 상품이 존재하지 않음
+ * 일괄 주문은 없는 id를 한번에 모아서 알려준다.
+ */
+public class OrderTargetNotFoundException extends RuntimeException {
+
+    private final Set<Long> memberIds;
+    private final Set<Long> itemIds;
+
+    public OrderTargetNotFoundException(Set<Long> memberIds, Set<Long> itemIds) {
+        super("존재하지 않는 회원, 상품입니다. memberIds = " + memberIds + ", itemIds = " + itemIds);
+        this.memberIds = memberIds;
+        this.itemIds = itemIds;
+    }
+
+    public Set<Long> getMemberIds() {
+        return memberIds;
+    }
+
+    public Set<Long> getItemIds() {
+        return itemIds;
+    }
+}
@@ -0,0 +1,158 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * /actuator/hibernate
+ *
+ * GET    : 통계 (sort=max|total 로 쿼리 정렬, limit 으로 쿼리 개수 제한)
+ * POST   : {"enabled": true|false} 통계 수집 켜고 끄기
+ * DELETE : 통계 초기화
+ *
+ * 커넥션 풀은 MeterRegistry의 hikaricp.connections.* 지표를 pool 태그별로 모아서 보여준다.
+ * 통계 수집은 기본으로 꺼져 있으므로(hibernate.generate_statistics=false) 필요할 때만 켠다.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private static final int DEFAULT_QUERY_LIMIT = 20;
+
+    private final Statistics statistics;
+    private final MeterRegistry meterRegistry;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics(@Nullable String sort, @Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("sessionsOpened", statistics.getSessionOpenCount());
+        result.put("connectionsObtained", statistics.getConnectCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("queryCache", cache(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        result.put("secondLevelCache", cache(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        result.put("entities", entities());
+        result.put("queries", queries(sort, limit == null ? DEFAULT_QUERY_LIMIT : limit));
+        result.put("pools", pools());
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> enable(boolean enabled) {
+        statistics.setStatisticsEnabled(enabled);
+        return statistics(null, null);
+    }
+
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+    }
+
+    private Map<String, Object> entities() {
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("loads", entity.getLoadCount());
+            counts.put("fetches", entity.getFetchCount());
+            counts.put("inserts", entity.getInsertCount());
+            counts.put("updates", entity.getUpdateCount());
+            counts.put("deletes", entity.getDeleteCount());
+            entities.put(entityName.substring(entityName.lastIndexOf('.') + 1), counts);
+        }
+        return entities;
+    }
+
+    /**
+     * 느린 쿼리 순 (sort=total 이면 총 실행 시간, 아니면 최대 실행 시간)
+     */
+    private List<Map<String, Object>> queries(@Nullable String sort, int limit) {
+        Comparator<QueryStatistics> order = "total".equalsIgnoreCase(sort)
+                ? Comparator.comparingLong(QueryStatistics::getExecutionTotalTime)
+                : Comparator.comparingLong(QueryStatistics::getExecutionMaxTime);
+
+        return Arrays.stream(statistics.getQueries())
+                .sorted(Comparator.comparing(statistics::getQueryStatistics, order.reversed()))
+                .limit(limit)
+                .map(query -> {
+                    QueryStatistics stats = statistics.getQueryStatistics(query);
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("query", query);
+                    result.put("executions", stats.getExecutionCount());
+                    result.put("avgTimeMs", stats.getExecutionAvgTime());
+                    result.put("maxTimeMs", stats.getExecutionMaxTime());
+                    result.put("totalTimeMs", stats.getExecutionTotalTime());
+                    result.put("rows", stats.getExecutionRowCount());
+                    result.put("cacheHits", stats.getCacheHitCount());
+                    result.put("cacheMisses", stats.getCacheMissCount());
+                    return result;
+                })
+                .collect(toList());
+    }
+
+    private Map<String, Object> pools() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (Gauge active : meterRegistry.find("hikaricp.connections.active").gauges()) {
+            String pool = active.getId().getTag("pool");
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("active", active.value());
+            stats.put("idle", gauge("hikaricp.connections.idle", pool));
+            stats.put("pending", gauge("hikaricp.connections.pending", pool));
+            stats.put("max", gauge("hikaricp.connections.max", pool));
+
+            Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+            if (acquire != null) {
+                stats.put("acquireCount", acquire.count());
+                stats.put("acquireMeanMs", acquire.mean(TimeUnit.MILLISECONDS));
+                stats.put("acquireMaxMs", acquire.max(TimeUnit.MILLISECONDS));
+            }
+            Counter timeout = meterRegistry.find("hikaricp.connections.timeout").tag("pool", pool).counter();
+            stats.put("timeouts", timeout == null ? 0 : timeout.count());
+            pools.put(pool, stats);
+        }
+        return pools;
+    }
+
+    private Double gauge(String name, String pool) {
+        Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? null : gauge.value();
+    }
+
+    private static Map<String, Object> cache(long hit, long miss, long put) {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hit", hit);
+        cache.put("miss", miss);
+        cache.put("put", put);
+        cache.put("hitRatio", hit + miss == 0 ? 0 : (double) hit / (hit + miss));
+        return cache;
+    }
+}
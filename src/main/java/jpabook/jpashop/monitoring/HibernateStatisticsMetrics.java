@@ -0,0 +1,121 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * hibernate Statistics -> Micrometer
+ *
+ * - jpashop.hibernate.entity.{loads,fetches,inserts,updates,deletes} (entity 태그)
+ * - jpashop.hibernate.query.{executions,rows} / jpashop.hibernate.query.max.time (query 태그, jpql 문자열)
+ * - jpashop.hibernate.cache.{query,second.level} (result=hit|miss|put 태그)
+ * - jpashop.hibernate.statements.prepared, jpashop.hibernate.sessions.opened
+ *
+ * 통계 수집은 hibernate.generate_statistics 또는 /actuator/hibernate 로 켜고 끈다.
+ * 꺼져 있으면 hibernate가 값을 세지 않으므로 지표는 0이고 비용은 지표를 읽을 때의 필드 조회뿐이다.
+ * 쿼리는 실행된 뒤에야 알 수 있으므로 주기적으로 새 쿼리의 지표를 등록한다.(최대 maxQueries 개)
+ */
+@Slf4j
+@Component
+public class HibernateStatisticsMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+    private final int maxQueries;
+    private final Set<String> registeredQueries = ConcurrentHashMap.newKeySet();
+    private volatile MeterRegistry registry;
+
+    public HibernateStatisticsMetrics(EntityManagerFactory entityManagerFactory,
+                                      @Value("${jpashop.hibernate.metrics.max-queries:100}") int maxQueries) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.maxQueries = maxQueries;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+
+        for (String entityName : statistics.getEntityNames()) {
+            String entity = entityName.substring(entityName.lastIndexOf('.') + 1);
+            entityCounter(registry, "loads", entity, s -> s.getEntityStatistics(entityName).getLoadCount());
+            entityCounter(registry, "fetches", entity, s -> s.getEntityStatistics(entityName).getFetchCount());
+            entityCounter(registry, "inserts", entity, s -> s.getEntityStatistics(entityName).getInsertCount());
+            entityCounter(registry, "updates", entity, s -> s.getEntityStatistics(entityName).getUpdateCount());
+            entityCounter(registry, "deletes", entity, s -> s.getEntityStatistics(entityName).getDeleteCount());
+        }
+
+        cacheCounter(registry, "query", "hit", Statistics::getQueryCacheHitCount);
+        cacheCounter(registry, "query", "miss", Statistics::getQueryCacheMissCount);
+        cacheCounter(registry, "query", "put", Statistics::getQueryCachePutCount);
+        cacheCounter(registry, "second.level", "hit", Statistics::getSecondLevelCacheHitCount);
+        cacheCounter(registry, "second.level", "miss", Statistics::getSecondLevelCacheMissCount);
+        cacheCounter(registry, "second.level", "put", Statistics::getSecondLevelCachePutCount);
+
+        FunctionCounter.builder("jpashop.hibernate.statements.prepared", statistics, Statistics::getPrepareStatementCount)
+                .description("prepare된 jdbc statement 수")
+                .register(registry);
+        FunctionCounter.builder("jpashop.hibernate.sessions.opened", statistics, Statistics::getSessionOpenCount)
+                .description("열린 세션(영속성 컨텍스트) 수")
+                .register(registry);
+    }
+
+    /**
+     * 새로 실행된 쿼리의 지표 등록
+     */
+    @Scheduled(fixedDelayString = "${jpashop.hibernate.metrics.refresh-interval-ms:10000}")
+    public void registerQueries() {
+        MeterRegistry registry = this.registry;
+        if (registry == null || !statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String query : statistics.getQueries()) {
+            if (registeredQueries.size() >= maxQueries) {
+                log.debug("쿼리 지표가 최대 개수({})에 도달해서 더 등록하지 않습니다.", maxQueries);
+                return;
+            }
+            if (!registeredQueries.add(query)) {
+                continue;
+            }
+            FunctionCounter.builder("jpashop.hibernate.query.executions", statistics,
+                            s -> s.getQueryStatistics(query).getExecutionCount())
+                    .description("쿼리 실행 수")
+                    .tag("query", query)
+                    .register(registry);
+            FunctionCounter.builder("jpashop.hibernate.query.rows", statistics,
+                            s -> s.getQueryStatistics(query).getExecutionRowCount())
+                    .description("쿼리가 읽은 row 수")
+                    .tag("query", query)
+                    .register(registry);
+            TimeGauge.builder("jpashop.hibernate.query.max.time", statistics, TimeUnit.MILLISECONDS,
+                            s -> s.getQueryStatistics(query).getExecutionMaxTime())
+                    .description("쿼리 최대 실행 시간")
+                    .tag("query", query)
+                    .register(registry);
+        }
+    }
+
+    private void entityCounter(MeterRegistry registry, String name, String entity, ToDoubleFunction<Statistics> count) {
+        FunctionCounter.builder("jpashop.hibernate.entity." + name, statistics, count)
+                .tag("entity", entity)
+                .register(registry);
+    }
+
+    private void cacheCounter(MeterRegistry registry, String cache, String result, ToDoubleFunction<Statistics> count) {
+        FunctionCounter.builder("jpashop.hibernate.cache." + cache, statistics, count)
+                .tag("result", result)
+                .register(registry);
+    }
+}
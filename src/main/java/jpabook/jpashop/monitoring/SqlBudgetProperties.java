@@ -0,0 +1,46 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청당 sql 예산 설정
+ *
+ * jpashop.sql.budgets."[/api/v5/orders]": 2 처럼 url 패턴별로 허용할 sql 수를 정한다.
+ * 예산을 넘으면 action에 따라 로그를 남기거나(LOG) 예외를 던진다(FAIL, 테스트용).
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.sql")
+public class SqlBudgetProperties {
+
+    /**
+     * 응답에 X-Sql-Count, X-Sql-Time-Ms 헤더 추가
+     */
+    private boolean headers = false;
+
+    /**
+     * budgets에 없는 url의 기본 예산 (0이면 검사하지 않음)
+     */
+    private int defaultBudget = 0;
+
+    /**
+     * 같은 sql이 이 횟수 이상 반복되면 N+1로 보고 경고 (0이면 검사하지 않음)
+     */
+    private int repeatThreshold = 10;
+
+    private Action action = Action.LOG;
+
+    private Map<String, Integer> budgets = new HashMap<>();
+
+    public int budgetOf(String uri) {
+        return budgets.getOrDefault(uri, defaultBudget);
+    }
+
+    public enum Action {
+        LOG, FAIL
+    }
+}
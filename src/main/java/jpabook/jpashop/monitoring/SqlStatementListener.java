@@ -0,0 +1,32 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 데코레이터가 실행하는 모든 statement, ResultSet.next()를 현재 요청의 SqlStatistics에 기록한다.
+ * (p6spy-spring-boot-starter가 JdbcEventListener 빈을 자동으로 등록한다.)
+ */
+@Component
+public class SqlStatementListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.statementExecuted(statementInformation.getSql(), timeElapsedNanos);
+        }
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null && hasNext) {
+            statistics.rowFetched(timeElapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청 하나에서 실행된 sql 통계
+ * 요청을 처리하는 스레드에 묶어두고(ThreadLocal) p6spy 리스너가 채운다.
+ * 요청 밖(스케줄러 등)에서 실행된 sql은 집계하지 않는다.
+ * 요청을 다른 스레드에서 이어서 처리하면(ApiExecutor) 그 스레드에 bind 해서 같이 집계한다.
+ * (한 번에 한 스레드만 기록해야 한다.)
+ */
+public class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statementCount;
+    private long jdbcTimeNanos;
+    private long rowCount;
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+    public static void bind(SqlStatistics statistics) {
+        if (statistics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statistics);
+        }
+    }
+
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted(String sql, long elapsedNanos) {
+        statementCount++;
+        jdbcTimeNanos += elapsedNanos;
+        executionsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void rowFetched(long elapsedNanos) {
+        rowCount++;
+        jdbcTimeNanos += elapsedNanos;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getJdbcTimeNanos() {
+        return jdbcTimeNanos;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 같은 sql이 가장 많이 실행된 횟수
+     * 지연 로딩으로 같은 쿼리가 결과 수만큼 반복되면(N+1) 이 값이 커진다.
+     */
+    public int getMaxRepeatCount() {
+        return executionsBySql.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public String getMostRepeatedSql() {
+        return executionsBySql.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+}
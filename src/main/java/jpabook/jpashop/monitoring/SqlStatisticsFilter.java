@@ -0,0 +1,165 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.exception.SqlBudgetExceededException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청당 sql 수, jdbc 시간, 읽은 row 수를 집계한다.
+ *
+ * - 엔드포인트(url 패턴)별 Micrometer 지표: http.server.requests.sql.statements / .sql.time / .sql.rows
+ * - jpashop.sql.headers=true 이면 응답 헤더 X-Sql-Count, X-Sql-Time-Ms
+ *   (헤더는 응답 body를 쓰기 직전까지의 값이다. 직렬화 중 지연 로딩된 sql은 지표에만 잡힌다.)
+ * - 예산(jpashop.sql.budgets)을 넘거나 같은 sql이 반복되면(N+1) 로그 또는 예외
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+    private static final String STATISTICS_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".STATISTICS";
+
+    private final SqlBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 비동기로 처리한 요청(ApiExecutor)은 async dispatch에서 응답을 쓰므로 그때 다시 들어와서 집계를 마친다.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        SqlStatistics statistics = (SqlStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        if (statistics == null) {
+            statistics = new SqlStatistics();
+            request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+        }
+        SqlStatistics.bind(statistics);
+        try {
+            HttpServletResponse target = properties.isHeaders() ? new SqlHeaderResponseWrapper(response, statistics) : response;
+            filterChain.doFilter(request, target);
+            if (isAsyncStarted(request)) {
+                return; //아직 처리중, 전용 스레드가 이어서 집계한다.
+            }
+            if (target instanceof SqlHeaderResponseWrapper) {
+                ((SqlHeaderResponseWrapper) target).writeHeaders();
+            }
+        } finally {
+            SqlStatistics.clear();
+        }
+
+        String uri = resolveUri(request);
+        record(uri, statistics);
+        check(request.getMethod(), uri, statistics);
+    }
+
+    private String resolveUri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNKNOWN_URI;
+    }
+
+    private void record(String uri, SqlStatistics statistics) {
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("요청당 실행된 sql 수")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.getStatementCount());
+        Timer.builder("http.server.requests.sql.time")
+                .description("요청당 jdbc 실행 시간")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.getJdbcTimeNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("http.server.requests.sql.rows")
+                .description("요청당 읽은 row 수")
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getRowCount());
+    }
+
+    private void check(String method, String uri, SqlStatistics statistics) {
+        int repeatThreshold = properties.getRepeatThreshold();
+        if (repeatThreshold > 0 && statistics.getMaxRepeatCount() >= repeatThreshold) {
+            log.warn("N+1 의심 {} {} 같은 sql {}번 실행: {}",
+                    method, uri, statistics.getMaxRepeatCount(), statistics.getMostRepeatedSql());
+        }
+
+        int budget = properties.budgetOf(uri);
+        if (budget <= 0 || statistics.getStatementCount() <= budget) {
+            return;
+        }
+        String message = String.format("sql 예산 초과 %s %s: %d개 실행 (예산 %d개)",
+                method, uri, statistics.getStatementCount(), budget);
+        if (properties.getAction() == SqlBudgetProperties.Action.FAIL) {
+            throw new SqlBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    /**
+     * 응답이 커밋되면 헤더를 추가할 수 없으므로 body를 쓰기 직전에 헤더를 추가한다.
+     */
+    private static class SqlHeaderResponseWrapper extends HttpServletResponseWrapper {
+        private final SqlStatistics statistics;
+        private boolean headersWritten;
+
+        SqlHeaderResponseWrapper(HttpServletResponse response, SqlStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader("X-Sql-Count", String.valueOf(statistics.getStatementCount()));
+            setHeader("X-Sql-Time-Ms", String.valueOf(TimeUnit.NANOSECONDS.toMillis(statistics.getJdbcTimeNanos())));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.CategoryClosure;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * 카테고리 + closure 테이블(category_closure)
+ *
+ * closure 변경은 insert-select 한번으로 하므로 트리 깊이나 하위 카테고리 수만큼 쿼리가 늘지 않는다.
+ * native 쿼리는 영속성 컨텍스트를 거치지 않으므로 실행 전에 flush 한다.
+ *
+ * closure 변경은 다른 카테고리의 경로를 읽어서 복사하므로 동시에 실행되면 이미 바뀐 경로를 복사할 수 있다.
+ * (등록과 상위 카테고리 이동이 겹치면 새 카테고리에 이전 조상 경로가 남는다.)
+ * 그래서 구조를 바꾸기 전에 경로를 읽을 카테고리와 경로가 바뀔 카테고리 row를 select ... for update로 잠근다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    /**
+     * 카테고리와 closure 저장
+     * 부모의 조상 경로를 그대로 이어받고 자기 자신 경로(depth 0)를 추가한다.
+     */
+    public void save(Category category) {
+        em.persist(category);
+        em.persist(new CategoryClosure(category.getId(), category.getId(), 0));
+        if (category.getParent() == null) {
+            return;
+        }
+        em.flush();
+        em.createNativeQuery("insert into category_closure (ancestor_id, descendant_id, depth)" +
+                        " select ancestor_id, :id, depth + 1 from category_closure where descendant_id = :parentId")
+                .setParameter("id", category.getId())
+                .setParameter("parentId", category.getParent().getId())
+                .executeUpdate();
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * 카테고리 row 잠금 (등록할 카테고리의 부모, 이동할 위치)
+     * 잠금을 가진 동안에는 이 카테고리의 조상 경로가 바뀌지 않는다.
+     */
+    public Category findForUpdate(Long id) {
+        return em.find(Category.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리 row 잠금 (이동할 하위 트리)
+     * 하위 트리 아래에 등록하거나 하위 트리 안으로 이동하는 트랜잭션은 잠금이 풀릴 때까지 기다린다.
+     */
+    public List<Category> findSubtreeForUpdate(Long categoryId) {
+        return em.createQuery("select c from Category c" +
+                        " where c.id in (select cc.descendantId from CategoryClosure cc where cc.ancestorId = :categoryId)" +
+                        " order by c.id", Category.class)
+                .setParameter("categoryId", categoryId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 트리를 만들기 위한 전체 카테고리 (id, name, parent id)
+     * 엔티티를 만들지 않고 한번에 읽는다.
+     */
+    public List<Object[]> findAllForTree() {
+        return em.createQuery("select c.id, c.name, p.id from Category c left join c.parent p order by c.id", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * descendantId가 ancestorId 자신이거나 하위 카테고리인지
+     */
+    public boolean isInSubtree(Long ancestorId, Long descendantId) {
+        return !em.createQuery("select cc.depth from CategoryClosure cc" +
+                        " where cc.ancestorId = :ancestorId and cc.descendantId = :descendantId", Integer.class)
+                .setParameter("ancestorId", ancestorId)
+                .setParameter("descendantId", descendantId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * 하위 트리 이동 (category와 그 하위 카테고리 전체를 newParent 아래로)
+     * 1. 하위 트리 밖의 조상 -> 하위 트리 경로 삭제
+     * 2. newParent의 조상(자신 포함) x 하위 트리 경로 추가
+     * newParent가 null이면 최상위 카테고리가 된다.
+     */
+    public void moveSubtree(Category category, Category newParent) {
+        em.flush();
+        em.createNativeQuery("delete from category_closure" +
+                        " where descendant_id in (select descendant_id from category_closure where ancestor_id = :id)" +
+                        " and ancestor_id in (select ancestor_id from category_closure where descendant_id = :id and ancestor_id <> :id)")
+                .setParameter("id", category.getId())
+                .executeUpdate();
+        if (newParent == null) {
+            return;
+        }
+        em.createNativeQuery("insert into category_closure (ancestor_id, descendant_id, depth)" +
+                        " select a.ancestor_id, d.descendant_id, a.depth + d.depth + 1" +
+                        " from category_closure a cross join category_closure d" +
+                        " where a.descendant_id = :parentId and d.ancestor_id = :id")
+                .setParameter("parentId", newParent.getId())
+                .setParameter("id", category.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리의 상품 (상품 id 순 페이징)
+     * 상품이 여러 하위 카테고리에 있어도 exists로 찾으므로 중복되지 않는다.
+     */
+    public List<Item> findItemsInSubtree(Long categoryId, int offset, int limit) {
+        return em.createQuery("select i from Item i" +
+                        " where exists (select cc.descendantId from CategoryClosure cc, Category c join c.items ci" +
+                        " where cc.ancestorId = :categoryId and c.id = cc.descendantId and ci = i)" +
+                        " order by i.id", Item.class)
+                .setParameter("categoryId", categoryId)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.DeliveryOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface DeliveryOutboxRepository extends JpaRepository<DeliveryOutbox, Long> {
+
+    //아직 발행하지 않은 이벤트를 발생 순서대로 조회
+    List<DeliveryOutbox> findByPublishedAtIsNullOrderByIdAsc(Pageable pageable);
+
+    List<DeliveryOutbox> findByOrderIdOrderByIdAsc(Long orderId);
+}
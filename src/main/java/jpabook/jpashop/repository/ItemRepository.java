@@ -2,10 +2,12 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -28,8 +30,43 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    public List<Item> findAllByIds(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true) //item 테이블이 변경되면 쿼리 캐시는 무효화된다.
                 .getResultList();
     }
+
+    /**
+     * 조건부 재고 차감
+     * 재고가 충분할 때만 update 한번으로 차감하므로 동시에 주문이 들어와도 재고가 음수가 되지 않는다.
+     * 낙관적 락으로 변경하는 쪽과 섞여도 lost update가 없도록 version도 같이 올린다.
+     * @return 변경된 row 수 (0이면 재고 부족)
+     */
+    public int decreaseStock(Long itemId, int count) {
+        return em.createQuery("update Item i" +
+                        " set i.stockQuantity = i.stockQuantity - :count, i.version = i.version + 1" +
+                        " where i.id = :itemId and i.stockQuantity >= :count")
+                .setParameter("count", count)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 재고 증감 반영 (조건 없음)
+     * 메모리에서 이미 검증한 재고 변경분을 모아서 반영할 때 사용
+     */
+    public int addStock(Long itemId, int delta) {
+        return em.createQuery("update Item i" +
+                        " set i.stockQuantity = i.stockQuantity + :delta, i.version = i.version + 1" +
+                        " where i.id = :itemId")
+                .setParameter("delta", delta)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
 }
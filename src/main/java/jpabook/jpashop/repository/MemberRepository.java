@@ -1,15 +1,69 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * spring data jpa 맛보기
  * 기본적인 구현체를 JpaRepository가 알아서 만들어서 넣어줌
  */
 public interface MemberRepository extends JpaRepository<Member, Long> {
+    /**
+     * 쿼리 캐시 사용(식별자 목록만 캐시하고 엔티티는 2차 캐시에서 읽는다.)
+     * member 테이블이 변경되면 무효화된다.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Member> findAll();
+
     //select m from Member m where m.name = ?
     List<Member> findByName(String name);
+
+    /**
+     * keyset 페이징 (id 순, lastId 다음부터 pageable 크기만큼)
+     * offset 페이징과 달리 앞 페이지를 읽고 버리지 않으므로 뒤 페이지도 pk 인덱스에서 바로 시작한다.
+     */
+    List<Member> findByIdGreaterThanOrderByIdAsc(Long lastId, Pageable pageable);
+
+    @Query("select new jpabook.jpashop.repository.MemberSummary(m.id, m.name, m.address) from Member m" +
+            " where m.id > :lastId order by m.id")
+    List<MemberSummary> findSummariesAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    /**
+     * 이름 앞부분 일치 (uk_member_name 인덱스 범위 조회)
+     * @param prefix like 패턴, '!'로 escape
+     */
+    @Query("select new jpabook.jpashop.repository.MemberSummary(m.id, m.name, m.address) from Member m" +
+            " where m.name like :prefix escape '!' order by m.name")
+    List<MemberSummary> findSummariesByNameLike(@Param("prefix") String prefix, Pageable pageable);
+
+    /**
+     * 중복 회원 검증
+     * 엔티티를 만들지 않고 uk_member_name 인덱스에서 한건만 찾는다.
+     */
+    boolean existsByName(String name);
+
+    /**
+     * 이미 있는 이름 (회원 일괄 등록, chunk마다 IN 쿼리 한번)
+     */
+    @Query("select m.name from Member m where m.name in :names")
+    List<String> findNamesIn(@Param("names") Collection<String> names);
+
+    /**
+     * 회원 이름 전체 (MemberNameFilter 초기화)
+     * 트랜잭션 안에서 사용하고 close 해야 한다.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select m.name from Member m")
+    Stream<String> streamAllNames();
 }
@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import lombok.Getter;
+
+/**
+ * 회원 목록, 회원 검색(주문 화면)용 projection
+ * 엔티티가 아니므로 영속성 컨텍스트에 쌓이지 않고 2차 캐시도 거치지 않는다.
+ */
+@Getter
+public class MemberSummary {
+    private final Long id;
+    private final String name;
+    private final Address address;
+
+    public MemberSummary(Long id, String name, Address address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+}
@@ -153,4 +153,33 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    /**
+     * keyset(seek) 페이징
+     * offset 방식은 DB가 offset 만큼 row를 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+     * 마지막으로 읽은 (orderDate, order_id) 다음 row부터 limit 만큼만 읽으므로
+     * (orderDate, order_id) 인덱스를 타면 몇 번째 페이지든 비용이 같다.
+     *
+     * ToOne관계만 페치조인하고, orderItems는 default_batch_fetch_size로 IN 조회한다.
+     * @param cursor 첫 페이지면 null
+     */
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (cursor != null) {
+            //orderDate >= 조건이 있어야 인덱스 범위 검색을 한다.(or 조건만 있으면 full scan)
+            jpql += " where o.orderDate >= :orderDate" +
+                    " and (o.orderDate > :orderDate or o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
 }
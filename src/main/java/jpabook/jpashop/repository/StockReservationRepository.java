@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    //반영할 예약 기록 (같은 기록을 두번 반영하지 않도록 락)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.itemId = :itemId")
+    List<StockReservation> findForUpdateByItemId(@Param("itemId") Long itemId);
+
+    //반영하지 않은 예약 기록이 있는 상품
+    @Query("select distinct r.itemId from StockReservation r")
+    List<Long> findItemIds();
+}
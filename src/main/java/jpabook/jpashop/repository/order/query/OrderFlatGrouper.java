@@ -0,0 +1,79 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * flat 조인 row를 주문 단위로 묶는다. (V6)
+ *
+ * groupingBy는 row마다 key DTO를 만들고 전체 결과를 HashMap에 담은 뒤 다시 순회하며, 결과 순서도 보장되지 않는다.
+ * row가 order_id 순으로 정렬되어 있으면 order_id가 바뀌는 순간 이전 주문이 끝난 것이므로
+ * 바로 consumer에 넘길 수 있다. 메모리에는 주문 하나만 남고 결과는 order_id 순서를 유지한다.
+ *
+ * offset, limit은 row가 아니라 주문 기준이다.
+ * offset 이전 주문의 row는 객체를 만들지 않고 건너뛰고, limit만큼 넘긴 뒤에는 add()가 false를 반환하므로 더 읽지 않아도 된다.
+ *
+ * 마지막 주문은 다음 row가 없으므로 finish()를 호출해야 넘어간다.
+ */
+public class OrderFlatGrouper {
+
+    private final long offset;
+    private final long limit;
+    private final Consumer<OrderQueryDto> consumer;
+
+    private Long currentOrderId;
+    private OrderQueryDto current;
+    private long orderCount;
+    private long emittedCount;
+
+    public OrderFlatGrouper(Consumer<OrderQueryDto> consumer) {
+        this(0, Long.MAX_VALUE, consumer);
+    }
+
+    public OrderFlatGrouper(long offset, long limit, Consumer<OrderQueryDto> consumer) {
+        this.offset = offset;
+        this.limit = limit;
+        this.consumer = consumer;
+    }
+
+    /**
+     * @return limit만큼 주문을 넘겼으면 false (더 읽을 필요 없음)
+     * @throws IllegalStateException row가 order_id 순으로 정렬되어 있지 않으면
+     */
+    public boolean add(OrderFlatDto row) {
+        Long orderId = row.getOrderId();
+        if (!orderId.equals(currentOrderId)) {
+            if (currentOrderId != null && orderId < currentOrderId) {
+                throw new IllegalStateException("flat row는 order_id 순으로 정렬되어야 합니다. orderId = " + orderId);
+            }
+            emitCurrent();
+            if (emittedCount >= limit) {
+                return false;
+            }
+            currentOrderId = orderId;
+            if (++orderCount > offset) {
+                current = new OrderQueryDto(orderId, row.getName(), row.getOrderDate(),
+                        row.getOrderStatus(), row.getAddress(), row.getTotalPrice(), row.getItemCount(), new ArrayList<>());
+            }
+        }
+        if (current != null) {
+            current.getOrderItems().add(new OrderItemQueryDto(orderId, row.getItemName(), row.getOrderPrice(), row.getCount()));
+        }
+        return true;
+    }
+
+    /**
+     * 마지막 주문을 넘긴다.
+     */
+    public void finish() {
+        emitCurrent();
+    }
+
+    private void emitCurrent() {
+        if (current != null) {
+            consumer.accept(current);
+            emittedCount++;
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package jpabook.jpashop.repository.order.query;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 주문 DTO 병렬 조회 (V5 개선)
+ *
+ * findAllByDto_optimization()은 주문 조회 -> 주문상품 IN 조회를 커넥션 하나에서 순서대로 실행한다.
+ * 여기서는 페이지의 주문 id를 먼저 읽고(pk 인덱스만 사용), id 목록을 chunkSize 개씩 나눠서
+ * chunk마다 주문 조회와 주문상품 조회를 각각 별도의 읽기 전용 트랜잭션(커넥션)에서 동시에 실행한다.
+ * IN 절 파라미터 수는 chunkSize를 넘지 않는다.(드라이버/DB의 파라미터 수 제한)
+ *
+ * 두 쿼리 모두 주문 id 순으로 정렬해서 가져오므로 Map으로 묶지 않고 순서대로 걸어가며 붙인다.(주문상품 목록은 subList)
+ *
+ * 동시에 실행되는 쿼리 수는 parallelism으로 제한한다.(커넥션 풀보다 작아야 한다.)
+ * 호출한 스레드가 커넥션을 잡은 채로 병렬 쿼리의 커넥션을 기다리면 풀이 고갈될 수 있으므로 트랜잭션 밖에서 호출해야 한다.
+ * 병렬 스레드에서 실행된 sql은 요청의 SqlStatistics에 집계되지 않는다.
+ */
+@Component
+public class OrderQueryAssembler {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+    private final int chunkSize;
+
+    public OrderQueryAssembler(OrderQueryRepository orderQueryRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${jpashop.query.parallelism:4}") int parallelism,
+                               @Value("${jpashop.query.in-chunk-size:500}") int chunkSize) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.chunkSize = chunkSize;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        //대기열이 가득 차면 호출한 스레드에서 실행한다.(호출 스레드는 커넥션을 잡고 있지 않다.)
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "order.query");
+    }
+
+    public List<OrderQueryDto> findAllByDto_parallel(int offset, int limit) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("병렬 조회는 트랜잭션 밖에서 호출해야 합니다.");
+        }
+
+        List<Long> orderIds = readOnlyTransaction.execute(status -> orderQueryRepository.findOrderIds(offset, limit));
+
+        //chunk마다 주문, 주문상품 조회를 동시에 시작
+        List<CompletableFuture<List<OrderQueryDto>>> orderFutures = new ArrayList<>();
+        List<CompletableFuture<List<OrderItemQueryDto>>> orderItemFutures = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += chunkSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + chunkSize, orderIds.size()));
+            orderFutures.add(readAsync(() -> orderQueryRepository.findOrders(chunk)));
+            orderItemFutures.add(readAsync(() -> orderQueryRepository.findOrderItems(chunk)));
+        }
+
+        List<OrderQueryDto> result = new ArrayList<>(orderIds.size());
+        for (int i = 0; i < orderFutures.size(); i++) {
+            List<OrderQueryDto> orders = join(orderFutures.get(i));
+            attachOrderItems(orders, join(orderItemFutures.get(i)));
+            result.addAll(orders);
+        }
+        return result;
+    }
+
+    /**
+     * 주문, 주문상품 모두 주문 id 오름차순이다.
+     */
+    private static void attachOrderItems(List<OrderQueryDto> orders, List<OrderItemQueryDto> orderItems) {
+        int from = 0;
+        for (OrderQueryDto order : orders) {
+            //주문이 조회되지 않은 주문상품(조회 사이에 삭제된 주문 등)은 건너뛴다.
+            while (from < orderItems.size() && orderItems.get(from).getOrderId() < order.getOrderId()) {
+                from++;
+            }
+            int to = from;
+            while (to < orderItems.size() && orderItems.get(to).getOrderId().equals(order.getOrderId())) {
+                to++;
+            }
+            order.setOrderItems(orderItems.subList(from, to));
+            from = to;
+        }
+    }
+
+    private <T> CompletableFuture<T> readAsync(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
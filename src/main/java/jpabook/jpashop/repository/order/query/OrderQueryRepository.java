@@ -1,13 +1,19 @@
 package jpabook.jpashop.repository.order.query;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
@@ -16,6 +22,17 @@ public class OrderQueryRepository {
     @PersistenceContext
     private final EntityManager em;
 
+    private static final String FLAT_QUERY = "select new jpabook.jpashop.repository.order.query.OrderFlatDto" +
+            "(o.id, m.name, o.orderDate, o.status, d.address, o.totalPrice, o.itemCount, i.name, oi.orderPrice, oi.count)" +
+            " from Order o" +
+            " join o.member m" +
+            " join o.delivery d" +
+            " join o.orderItems oi" +
+            " join oi.item i" +
+            " order by o.id";
+
+    private static final int FLAT_FETCH_SIZE = 1000;
+
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> result = findOrders(); //query 1번 -> N개
@@ -44,7 +61,7 @@ public class OrderQueryRepository {
     }
 
     private List<OrderQueryDto> findOrders() {
-        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, o.delivery.address)" +
+        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, o.delivery.address, o.totalPrice, o.itemCount)" +
                         " from Order o" +
                         " join o.member m" +
                         " join o.delivery d", OrderQueryDto.class)
@@ -89,6 +106,45 @@ public class OrderQueryRepository {
         return orderItemMap;
     }
 
+    //==OrderQueryAssembler(병렬 조회)용==//
+
+    /**
+     * 주문 id만 조회(pk 인덱스만 읽는다.)
+     */
+    List<Long> findOrderIds(int offset, int limit) {
+        return em.createQuery("select o.id from Order o order by o.id", Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문 id 순으로 정렬해서 조회
+     */
+    List<OrderQueryDto> findOrders(List<Long> orderIds) {
+        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address, o.totalPrice, o.itemCount)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " where o.id in :orderIds" +
+                        " order by o.id", OrderQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문 id 순으로 정렬해서 조회(주문 목록과 같은 순서로 맞춰 붙일 수 있다.)
+     */
+    List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds" +
+                        " order by oi.order.id, oi.id", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream()
                 .map(o -> o.getOrderId())
@@ -96,14 +152,52 @@ public class OrderQueryRepository {
         return orderIds;
     }
 
+    /**
+     * order_id 순으로 정렬되어 있으므로 OrderFlatGrouper로 묶을 수 있다.
+     */
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderFlatDto" +
-                "(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                " from Order o" +
-                " join o.member m" +
-                " join o.delivery d" +
-                " join o.orderItems oi" +
-                " join oi.item i", OrderFlatDto.class)
+        return em.createQuery(FLAT_QUERY, OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * flat 조인을 스크롤로 읽으면서 주문 단위로 묶는다. (주문 기준 offset, limit)
+     * 묶는 중에는 주문 하나만 메모리에 있고, limit만큼 채우면 나머지 row는 읽지 않는다.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderQueryDto> findAllByDto_flat(long offset, long limit) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        scrollAllByDto_flat(FLAT_FETCH_SIZE, new OrderFlatGrouper(offset, limit, result::add));
+        return result;
+    }
+
+    /**
+     * 전체 주문 export용
+     * 결과를 List로 한번에 올리지 않고 forward-only 스크롤로 한 row씩 읽는다.
+     * order_id가 바뀌는 시점에 OrderQueryDto 하나를 consumer에 넘긴다.(OrderFlatGrouper)
+     * 생성자 프로젝션(new OrderFlatDto)이라 엔티티를 만들지 않으므로 영속성 컨텍스트는 읽는 동안 계속 비어있다.
+     * (em.clear()가 필요 없다.) jdbc는 fetchSize row씩 가져오므로 테이블 크기와 상관없이 힙 사용량이 일정하다.
+     *
+     * 스크롤은 트랜잭션(커넥션)이 살아있는 동안에만 읽을 수 있으므로 consumer도 이 안에서 실행된다.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(int fetchSize, Consumer<OrderQueryDto> consumer) {
+        scrollAllByDto_flat(fetchSize, new OrderFlatGrouper(consumer));
+    }
+
+    private void scrollAllByDto_flat(int fetchSize, OrderFlatGrouper grouper) {
+        try (Stream<OrderFlatDto> rows = em.createQuery(FLAT_QUERY, OrderFlatDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()) {
+
+            Iterator<OrderFlatDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                if (!grouper.add(iterator.next())) {
+                    return;
+                }
+            }
+            grouper.finish();
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면(order/orderList)에 필요한 컬럼만 조회
+ * 대표상품은 주문의 첫번째 주문상품, 합계는 주문에 저장된 값(주문상품을 모두 읽지 않는다.)
+ */
+@Data
+public class OrderListDto {
+    private Long orderId;
+    private String memberName;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+    private int totalPrice;
+    private int itemCount;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+
+    public OrderListDto(Long orderId, String memberName, String itemName, int orderPrice, int count, int totalPrice, int itemCount, OrderStatus status, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+        this.totalPrice = totalPrice;
+        this.itemCount = itemCount;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+}
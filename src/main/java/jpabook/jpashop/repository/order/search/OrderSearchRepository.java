@@ -0,0 +1,103 @@
+package jpabook.jpashop.repository.order.search;
+
+import jpabook.jpashop.repository.OrderSearch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+/**
+ * 주문 검색
+ *
+ * findAllByString처럼 요청마다 jpql을 이어붙이면 요청마다 문자열을 만들고 쿼리 계획 캐시를 찾아야 한다.
+ * 검색 조건 조합(상태 유무 x 회원명 유무)은 4가지뿐이므로 시작할 때 조합별로 named query를 등록해서
+ * 파싱/변환을 한번만 하고, 요청에서는 이름으로 꺼내서 파라미터만 바인딩한다.
+ *
+ * 회원명은 앞부분 일치(like 'xxx%')만 지원하므로 member.name 인덱스를 탈 수 있다.
+ * 사용자가 입력한 %, _ 는 와일드카드가 아니라 문자로 검색한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSearchRepository {
+
+    public static final int MAX_RESULTS = 1000;
+
+    private static final String QUERY_NAME_PREFIX = "OrderSearch.";
+    private static final int STATUS = 1;
+    private static final int NAME = 1 << 1;
+    private static final char LIKE_ESCAPE = '!';
+
+    @PersistenceContext
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+
+    @PostConstruct
+    public void registerQueries() {
+        EntityManager registrar = emf.createEntityManager();
+        try {
+            for (int conditions = 0; conditions <= (STATUS | NAME); conditions++) {
+                emf.addNamedQuery(queryName(conditions), registrar.createQuery(jpql(conditions), OrderListDto.class));
+            }
+        } finally {
+            registrar.close();
+        }
+    }
+
+    public List<OrderListDto> search(OrderSearch orderSearch) {
+        int conditions = 0;
+        if (orderSearch.getOrderStatus() != null) {
+            conditions |= STATUS;
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            conditions |= NAME;
+        }
+
+        TypedQuery<OrderListDto> query = em.createNamedQuery(queryName(conditions), OrderListDto.class)
+                .setMaxResults(MAX_RESULTS); //최대 1000건
+        if ((conditions & STATUS) != 0) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if ((conditions & NAME) != 0) {
+            query.setParameter("name", prefixPattern(orderSearch.getMemberName()));
+        }
+        return query.getResultList();
+    }
+
+    static String jpql(int conditions) {
+        String jpql = "select new jpabook.jpashop.repository.order.search.OrderListDto" +
+                "(o.id, m.name, i.name, oi.orderPrice, oi.count, o.totalPrice, o.itemCount, o.status, o.orderDate)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.orderItems oi" +
+                " join oi.item i" +
+                " where oi.id = (select min(oi2.id) from OrderItem oi2 where oi2.order = o)"; //대표상품
+        if ((conditions & STATUS) != 0) {
+            jpql += " and o.status = :status";
+        }
+        if ((conditions & NAME) != 0) {
+            jpql += " and m.name like :name escape '" + LIKE_ESCAPE + "'";
+        }
+        return jpql + " order by o.id desc";
+    }
+
+    private static String queryName(int conditions) {
+        return QUERY_NAME_PREFIX + conditions;
+    }
+
+    /**
+     * 앞부분 일치 패턴
+     */
+    static String prefixPattern(String memberName) {
+        String escaped = memberName.trim()
+                .replace(String.valueOf(LIKE_ESCAPE), "" + LIKE_ESCAPE + LIKE_ESCAPE)
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_");
+        return escaped + "%";
+    }
+}
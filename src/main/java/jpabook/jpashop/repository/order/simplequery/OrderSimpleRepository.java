@@ -14,7 +14,7 @@ public class OrderSimpleRepository {
 
     public List<OrderSimpleQueryDto> findOrdersDto() {
         return em.createQuery("select " +
-                        "new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, o.member.name, o.orderDate, o.status, o.delivery.address) " +
+                        "new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, o.member.name, o.orderDate, o.status, o.delivery.address, o.totalPrice, o.itemCount) " +
                         "from Order o" +
                         " join o.member m" +
                         " join o.delivery d", OrderSimpleQueryDto.class)
@@ -0,0 +1,132 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * 상품 목록 스냅샷
+ *
+ * 상품 목록(상품 목록 화면, 주문 화면)은 요청마다 select i from Item i를 실행할 필요가 없다.
+ * DTO로 변환한 목록을 통째로 들고 있다가 카탈로그 버전이 바뀌면 다시 만든다.
+ * 버전은 상품 등록/수정(ItemService)이 커밋된 후에 올린다.
+ * 주문으로 바뀌는 재고는 버전을 올리지 않으므로 maxAge가 지나면 다시 만든다.
+ *
+ * 다시 만드는 동안 다른 스레드는 기다리지 않고 이전 스냅샷을 읽는다.(최초 한번만 기다린다.)
+ */
+@Slf4j
+@Service
+public class CatalogService {
+
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long maxAgeNanos;
+
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public CatalogService(ItemRepository itemRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${jpashop.catalog.max-age:5s}") Duration maxAge) {
+        this.itemRepository = itemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    public List<ItemServiceDto> getItems() {
+        Snapshot current = snapshot;
+        if (current != null && current.isFresh()) {
+            return current.items;
+        }
+
+        if (rebuildLock.tryLock()) {
+            try {
+                return rebuildIfStale().items;
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+
+        if (current != null) {
+            return current.items; //다른 스레드가 다시 만드는 중
+        }
+
+        //최초 스냅샷은 만들어질 때까지 기다린다.
+        rebuildLock.lock();
+        try {
+            return rebuildIfStale().items;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 카탈로그 버전 증가
+     * 트랜잭션 안이면 커밋된 후에 올린다.(커밋 전에 올리면 변경 전 데이터로 새 버전 스냅샷을 만들 수 있다.)
+     */
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    private Snapshot rebuildIfStale() {
+        Snapshot current = snapshot;
+        if (current != null && current.isFresh()) {
+            return current;
+        }
+
+        //DB를 읽기 전의 버전을 기록해야 읽는 도중 올라간 버전을 놓치지 않는다.
+        long targetVersion = version.get();
+        List<ItemServiceDto> items = readOnlyTransaction.execute(status -> itemRepository.findAll().stream()
+                .map(ItemServiceDto::new)
+                .collect(toUnmodifiableList()));
+
+        Snapshot rebuilt = new Snapshot(targetVersion, System.nanoTime(), items);
+        snapshot = rebuilt;
+        log.debug("카탈로그 스냅샷 재생성 version={}, size={}", targetVersion, items.size());
+        return rebuilt;
+    }
+
+    private class Snapshot {
+        private final long version;
+        private final long builtAt;
+        private final List<ItemServiceDto> items;
+
+        Snapshot(long version, long builtAt, List<ItemServiceDto> items) {
+            this.version = version;
+            this.builtAt = builtAt;
+            this.items = items;
+        }
+
+        boolean isFresh() {
+            return version == CatalogService.this.version.get()
+                    && System.nanoTime() - builtAt < maxAgeNanos;
+        }
+    }
+}
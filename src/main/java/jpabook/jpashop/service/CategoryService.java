@@ -0,0 +1,156 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 카테고리 계층
+ *
+ * 카테고리 구조 변경(등록, 이동)은 Category(parent/child), closure 테이블, 트리 캐시를 같이 바꾼다.
+ * 구조 변경은 관련된 카테고리 row를 먼저 잠그므로 경로가 겹치는 변경은 차례로 실행된다.(CategoryRepository 참고)
+ * 트리는 카테고리 전체를 한번에 읽어서 메모리에 들고 있다가 구조가 바뀐 트랜잭션이 커밋되면 다시 만든다.
+ * 하위 카테고리 상품 조회는 closure 테이블로 한번에 한다.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Transactional
+    public Long create(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        if (parentId != null) {
+            //부모의 조상 경로를 복사하는 동안 부모가 이동하지 않도록 잠근다.
+            findCategoryForUpdate(parentId).changeChildCategory(category);
+        }
+        categoryRepository.save(category);
+        invalidate();
+        return category.getId();
+    }
+
+    /**
+     * 카테고리를 하위 카테고리와 함께 newParentId 아래로 이동 (null이면 최상위)
+     */
+    @Transactional
+    public void move(Long categoryId, Long newParentId) {
+        //경로가 바뀔 하위 트리와 경로를 복사할 새 부모를 잠근 뒤에 읽어야 다른 변경과 겹치지 않는다.
+        categoryRepository.findSubtreeForUpdate(categoryId);
+        Category category = findCategory(categoryId);
+        Category newParent = newParentId == null ? null : findCategoryForUpdate(newParentId);
+        if (newParent != null && categoryRepository.isInSubtree(categoryId, newParentId)) {
+            throw new IllegalStateException("자기 자신이나 하위 카테고리 아래로 이동할 수 없습니다.");
+        }
+
+        if (newParent != null) {
+            newParent.changeChildCategory(category);
+        } else if (category.getParent() != null) {
+            category.getParent().getChild().remove(category);
+            category.setParent(null);
+        }
+        categoryRepository.moveSubtree(category, newParent);
+        invalidate();
+    }
+
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        Category category = findCategory(categoryId);
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("상품이 없습니다. itemId = " + itemId);
+        }
+        category.getItems().add(item);
+        item.getCategories().add(category);
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리의 상품
+     */
+    public List<ItemServiceDto> findItems(Long categoryId, int offset, int limit) {
+        return categoryRepository.findItemsInSubtree(categoryId, offset, limit).stream()
+                .map(ItemServiceDto::new)
+                .collect(toList());
+    }
+
+    public CategoryTree getTree() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == version.get()) {
+            return current.tree;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && current.version == version.get()) {
+                return current.tree;
+            }
+            //DB를 읽기 전의 버전을 기록해야 읽는 도중 올라간 버전을 놓치지 않는다.
+            long targetVersion = version.get();
+            CategoryTree tree = new CategoryTree(categoryRepository.findAllForTree());
+            snapshot = new Snapshot(targetVersion, tree);
+            log.debug("카테고리 트리 재생성 version={}, size={}", targetVersion, tree.size());
+            return tree;
+        }
+    }
+
+    private Category findCategory(Long categoryId) {
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("카테고리가 없습니다. categoryId = " + categoryId);
+        }
+        return category;
+    }
+
+    private Category findCategoryForUpdate(Long categoryId) {
+        Category category = categoryRepository.findForUpdate(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("카테고리가 없습니다. categoryId = " + categoryId);
+        }
+        return category;
+    }
+
+    /**
+     * 트리 버전 증가
+     * 커밋된 후에 올린다.(커밋 전에 올리면 변경 전 데이터로 새 버전 트리를 만들 수 있다.)
+     */
+    private void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final CategoryTree tree;
+
+        Snapshot(long version, CategoryTree tree) {
+            this.version = version;
+            this.tree = tree;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 트리 스냅샷
+ * 만든 뒤에는 변경할 수 없으므로 여러 스레드가 같이 읽어도 안전하다.
+ */
+public class CategoryTree {
+
+    private final List<Node> roots;
+    private final Map<Long, Node> nodes;
+
+    /**
+     * @param rows (id, name, parent id) - CategoryRepository.findAllForTree()
+     */
+    CategoryTree(List<Object[]> rows) {
+        Map<Long, Node> nodes = new HashMap<>();
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            nodes.put(id, new Node(id, (String) row[1], (Long) row[2]));
+        }
+
+        List<Node> roots = new ArrayList<>();
+        for (Object[] row : rows) { //id 순서를 유지한다.
+            Node node = nodes.get((Long) row[0]);
+            Node parent = node.parentId == null ? null : nodes.get(node.parentId);
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.children.add(node);
+            }
+        }
+        this.roots = Collections.unmodifiableList(roots);
+        this.nodes = Collections.unmodifiableMap(nodes);
+    }
+
+    public List<Node> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @return 없으면 null
+     */
+    public Node getNode(Long id) {
+        return nodes.get(id);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    @Getter
+    public static class Node {
+        private final Long id;
+        private final String name;
+        @JsonIgnore
+        private final Long parentId;
+        private final List<Node> children = new ArrayList<>();
+
+        Node(Long id, String name, Long parentId) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * hot 상품 재고 예약 장부
+ *
+ * 선착순 판매처럼 한 상품에 주문이 몰리면 주문마다 item row에 락을 잡고 update하는 것이 병목이 된다.
+ * hot 상품의 재고는 메모리에 여러 칸(stripe)으로 나눠서 들고 있고, 주문은 CAS로 한 칸에서만 차감한다.
+ * 주문은 item row 대신 예약 기록(StockReservation)을 같은 트랜잭션에 insert 하고,
+ * 주기적으로 상품별 예약 기록을 모아서 update 한번으로 재고에 반영한 뒤 삭제한다.
+ *
+ * 커밋된 주문의 예약 기록은 DB에 남으므로 비정상 종료되어도 차감이 유실되지 않는다.
+ * 시작할 때 남은 예약 기록부터 재고에 반영하고 item.stock_quantity를 읽어서 장부를 만든다.
+ * 상품 수정, 주문 취소처럼 장부를 거치지 않은 재고 변경은 reconcile 주기마다 DB 기준으로 보정한다.
+ */
+@Slf4j
+@Component
+public class HotStockLedger {
+
+    private final ItemRepository itemRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> hotItemIds;
+    private final int stripeCount;
+
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+
+    public HotStockLedger(ItemRepository itemRepository,
+                          StockReservationRepository stockReservationRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${jpashop.stock.hot-items:}") List<Long> hotItemIds,
+                          @Value("${jpashop.stock.stripes:8}") int stripeCount) {
+        this.itemRepository = itemRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hotItemIds = new HashSet<>(hotItemIds);
+        this.stripeCount = stripeCount;
+    }
+
+    public boolean isHot(Long itemId) {
+        return stocks.containsKey(itemId);
+    }
+
+    /**
+     * 재고 예약
+     * 이후에 주문과 함께 예약 기록을 저장해야 한다.(OrderService.orderWithStockReservation)
+     * @throws NotEnoughStockException 메모리 재고가 부족하면 DB에 가지 않고 바로 실패
+     */
+    public void reserve(Long itemId, int count) {
+        if (!getStock(itemId).reserve(count)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+    }
+
+    /**
+     * 예약 취소(주문 저장 실패 등)
+     */
+    public void release(Long itemId, int count) {
+        getStock(itemId).release(count);
+    }
+
+    public int getStockQuantity(Long itemId) {
+        return getStock(itemId).available();
+    }
+
+    private StripedStock getStock(Long itemId) {
+        StripedStock stock = stocks.get(itemId);
+        if (stock == null) {
+            throw new IllegalArgumentException("hot 상품이 아닙니다. itemId = " + itemId);
+        }
+        return stock;
+    }
+
+    /**
+     * 시작시 남은 예약 기록을 반영하고 DB 재고로 장부를 만든다.
+     * 이전 실행에서 반영하지 못한 예약은 hot 상품 설정이 바뀌었어도 모두 반영한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        for (Long itemId : transactionTemplate.execute(status -> stockReservationRepository.findItemIds())) {
+            int applied = applyReservations(itemId);
+            log.info("반영하지 못한 재고 예약 반영 itemId={}, quantity={}", itemId, applied);
+        }
+        for (Long itemId : hotItemIds) {
+            Integer stockQuantity = readStockQuantity(itemId);
+            if (stockQuantity == null) {
+                log.warn("hot 상품이 존재하지 않습니다. itemId={}", itemId);
+                continue;
+            }
+            stocks.put(itemId, new StripedStock(stripeCount, stockQuantity));
+            log.info("hot 상품 재고 로딩 itemId={}, stockQuantity={}", itemId, stockQuantity);
+        }
+    }
+
+    /**
+     * 커밋된 예약 기록을 DB 재고에 반영
+     * 반영에 실패하면 예약 기록이 남아 있으므로 다음 주기에 다시 반영된다.
+     *
+     * reconcile과 동시에 실행되면 DB 재고와 미반영 예약량(pending)을 서로 다른 시점으로 읽게 되므로 synchronized
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.flush-interval-ms:200}")
+    @PreDestroy
+    public synchronized void flush() {
+        stocks.forEach((itemId, stock) -> {
+            try {
+                stock.applied(applyReservations(itemId));
+            } catch (RuntimeException e) {
+                log.error("hot 상품 재고 반영 실패 itemId={}", itemId, e);
+            }
+        });
+    }
+
+    /**
+     * 예약 기록을 재고에 반영하고 삭제 (트랜잭션 하나)
+     * @return 반영한 수량
+     */
+    private int applyReservations(Long itemId) {
+        return transactionTemplate.execute(status -> {
+            List<StockReservation> reservations = stockReservationRepository.findForUpdateByItemId(itemId);
+            int quantity = reservations.stream().mapToInt(StockReservation::getQuantity).sum();
+            if (!reservations.isEmpty()) {
+                itemRepository.addStock(itemId, -quantity);
+                stockReservationRepository.deleteAllInBatch(reservations);
+            }
+            return quantity;
+        });
+    }
+
+    /**
+     * 장부를 거치지 않고 바뀐 재고(상품 수정, 주문 취소)를 DB 기준으로 보정
+     * 예약했지만 아직 반영하지 않은 양(주문 저장중 + 예약 기록)은 DB 재고에서 빼고 비교한다.
+     * 예약은 남은 재고와 예약량을 같은 칸에서 CAS 한번으로 옮기므로, 예약 도중에 읽어도 둘의 합은 어긋나지 않는다.
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        flush();
+        stocks.forEach((itemId, stock) -> {
+            Integer stockQuantity = readStockQuantity(itemId);
+            if (stockQuantity == null) {
+                return;
+            }
+            int diff = stockQuantity - stock.availableWithPending();
+            if (diff > 0) {
+                stock.add(diff);
+            } else if (diff < 0) {
+                stock.removeUpTo(-diff);
+            }
+            if (diff != 0) {
+                log.info("hot 상품 재고 보정 itemId={}, diff={}", itemId, diff);
+            }
+        });
+    }
+
+    private Integer readStockQuantity(Long itemId) {
+        return transactionTemplate.execute(status -> {
+            Item item = itemRepository.findOne(itemId);
+            return item == null ? null : item.getStockQuantity();
+        });
+    }
+
+    /**
+     * 재고를 여러 칸으로 나눠서 CAS 경합을 분산한다.
+     *
+     * 칸마다 남은 재고(상위 32비트)와 아직 DB에 반영하지 않은 예약량(하위 32비트)을 long 하나에 담는다.
+     * 예약, 취소는 한 칸 안에서 남은 재고와 예약량을 CAS 한번으로 옮기므로 칸마다 둘의 합은 바뀌지 않는다.
+     * 칸별 예약량은 음수가 될 수 있고 전체 합만 의미가 있다.
+     */
+    static class StripedStock {
+        private static final int MAX_ATTEMPTS = 3;
+
+        private final AtomicLong[] stripes;
+
+        StripedStock(int stripeCount, int stockQuantity) {
+            stripes = new AtomicLong[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                int share = stockQuantity / stripeCount + (i < stockQuantity % stripeCount ? 1 : 0);
+                stripes[i] = new AtomicLong(pack(share, 0));
+            }
+        }
+
+        boolean reserve(int count) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                //한 칸에서 모두 가져올 수 있으면 CAS 한번으로 끝난다.
+                int start = ThreadLocalRandom.current().nextInt(stripes.length);
+                for (int i = 0; i < stripes.length; i++) {
+                    if (tryReserve(stripes[(start + i) % stripes.length], count)) {
+                        return true;
+                    }
+                }
+
+                //재고가 칸마다 조금씩 남은 경우 여러 칸에서 모은다.
+                int taken = takeUpTo(count, true);
+                if (taken == count) {
+                    return true;
+                }
+                release(taken);
+                if (available() < count) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 예약 취소: 예약량을 남은 재고로 돌려놓는다.
+         */
+        void release(int count) {
+            update(randomStripe(), count, -count);
+        }
+
+        /**
+         * 예약 기록이 DB 재고에 반영됨
+         */
+        void applied(int count) {
+            update(randomStripe(), 0, -count);
+        }
+
+        /**
+         * 보정: 남은 재고만 늘린다.
+         */
+        void add(int count) {
+            update(randomStripe(), count, 0);
+        }
+
+        /**
+         * 보정: 남은 재고만 줄인다.
+         */
+        int removeUpTo(int count) {
+            return takeUpTo(count, false);
+        }
+
+        int available() {
+            int total = 0;
+            for (AtomicLong stripe : stripes) {
+                total += available(stripe.get());
+            }
+            return total;
+        }
+
+        /**
+         * 남은 재고 + 반영하지 않은 예약량 (DB 재고와 같아야 한다.)
+         */
+        int availableWithPending() {
+            int total = 0;
+            for (AtomicLong stripe : stripes) {
+                long value = stripe.get();
+                total += available(value) + pending(value);
+            }
+            return total;
+        }
+
+        private int takeUpTo(int count, boolean reserve) {
+            int taken = 0;
+            for (int i = 0; i < stripes.length && taken < count; i++) {
+                AtomicLong stripe = stripes[i];
+                while (true) {
+                    long current = stripe.get();
+                    int amount = Math.min(available(current), count - taken);
+                    if (amount <= 0) {
+                        break;
+                    }
+                    long next = pack(available(current) - amount, pending(current) + (reserve ? amount : 0));
+                    if (stripe.compareAndSet(current, next)) {
+                        taken += amount;
+                        break;
+                    }
+                }
+            }
+            return taken;
+        }
+
+        private AtomicLong randomStripe() {
+            return stripes[ThreadLocalRandom.current().nextInt(stripes.length)];
+        }
+
+        private static boolean tryReserve(AtomicLong stripe, int count) {
+            while (true) {
+                long current = stripe.get();
+                if (available(current) < count) {
+                    return false;
+                }
+                if (stripe.compareAndSet(current, pack(available(current) - count, pending(current) + count))) {
+                    return true;
+                }
+            }
+        }
+
+        private static void update(AtomicLong stripe, int availableDelta, int pendingDelta) {
+            while (true) {
+                long current = stripe.get();
+                long next = pack(available(current) + availableDelta, pending(current) + pendingDelta);
+                if (stripe.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        private static long pack(int available, int pending) {
+            return ((long) available << 32) | (pending & 0xFFFFFFFFL);
+        }
+
+        private static int available(long value) {
+            return (int) (value >> 32);
+        }
+
+        private static int pending(long value) {
+            return (int) value;
+        }
+    }
+}
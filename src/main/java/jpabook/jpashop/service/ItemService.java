@@ -15,10 +15,12 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final CatalogService catalogService;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        catalogService.invalidate();
     }
 
     @Transactional
@@ -27,6 +29,7 @@ public class ItemService {
         findItem.setPrice(price);
         findItem.setName(name);
         findItem.setStockQuantity(stockQuantity);
+        catalogService.invalidate();
     }
 
     public List<Item> findItem() {
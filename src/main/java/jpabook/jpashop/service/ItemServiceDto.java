@@ -1,8 +1,51 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
 import lombok.Getter;
-import lombok.Setter;
 
-@Getter @Setter
+/**
+ * 상품 목록용 DTO
+ * 하위 타입(Book, Album, Movie)의 필드도 미리 꺼내두므로 엔티티나 영속성 컨텍스트 없이 사용할 수 있다.
+ * 변경할 수 없으므로 여러 스레드가 같이 읽어도 안전하다.
+ */
+@Getter
 public class ItemServiceDto {
+    private final Long id;
+    private final String name;
+    private final int price;
+    private final int stockQuantity;
+
+    //Book
+    private final String author;
+    private final String isbn;
+
+    //Album
+    private final String artist;
+    private final String etc;
+
+    //Movie
+    private final String director;
+    private final String actor;
+
+    public ItemServiceDto(Item item) {
+        this.id = item.getId();
+        this.name = item.getName();
+        this.price = item.getPrice();
+        this.stockQuantity = item.getStockQuantity();
+
+        Book book = item instanceof Book ? (Book) item : null;
+        this.author = book != null ? book.getAuthor() : null;
+        this.isbn = book != null ? book.getIsbn() : null;
+
+        Album album = item instanceof Album ? (Album) item : null;
+        this.artist = album != null ? album.getArtist() : null;
+        this.etc = album != null ? album.getEtc() : null;
+
+        Movie movie = item instanceof Movie ? (Movie) item : null;
+        this.director = movie != null ? movie.getDiretor() : null;
+        this.actor = movie != null ? movie.getActor() : null;
+    }
 }
@@ -0,0 +1,23 @@
+package jpabook.jpashop.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * 회원 일괄 등록 파일 형식
+ *
+ * NDJSON: 한 줄에 회원 하나 {"name": "...", "city": "...", "street": "...", "zipcode": "..."}
+ * CSV: name,city,street,zipcode (첫 줄이 name으로 시작하면 헤더로 보고 건너뛴다. 따옴표는 지원하지 않는다.)
+ */
+public enum MemberImportFormat {
+    NDJSON, CSV;
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    public static MemberImportFormat of(String contentType) {
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+}
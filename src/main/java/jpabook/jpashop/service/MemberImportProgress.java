@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 회원 일괄 등록 진행 상황 (chunk가 커밋될 때마다 하나, 마지막에 done=true)
+ * errors는 이번 chunk에서 실패한 row만 담는다.(전체 보고 개수는 maxErrors로 제한)
+ */
+@Getter
+@AllArgsConstructor
+public class MemberImportProgress {
+    private final int chunk;
+    private final long lines;
+    private final long imported;
+    private final long failed;
+    private final boolean done;
+    private final List<RowError> errors;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private final long line;
+        private final String name;
+        private final String message;
+    }
+}
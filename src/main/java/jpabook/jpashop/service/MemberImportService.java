@@ -0,0 +1,249 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 회원 일괄 등록
+ *
+ * 파일을 한 줄씩 읽어서 chunkSize 만큼 모이면 chunk 하나를 트랜잭션 하나로 저장한다.
+ * - 이미 있는 이름은 chunk마다 IN 쿼리 한번으로 확인한다.(MemberNameFilter에 없는 이름은 IN에서도 뺀다.)
+ * - insert는 jdbc batch(hibernate.jdbc.batch_size)로 묶이고, chunk가 끝나면 flush/clear 하므로
+ *   파일 크기와 상관없이 영속성 컨텍스트에는 chunk 하나만 올라간다.
+ * - 한 chunk가 실패해도 앞에서 커밋된 chunk는 그대로 남는다.
+ * - 확인한 뒤에 다른 요청(다른 서버)이 같은 이름으로 가입해서 chunk가 롤백되면,
+ *   필터를 거치지 않고 chunk의 모든 이름을 IN 쿼리로 다시 확인해서 그 이름만 빼고 다시 저장한다.(MAX_RETRIES 번까지)
+ *
+ * chunk가 커밋될 때마다 진행 상황을 listener에 넘긴다. 실패한 row는 전체 maxErrors 개까지만 보고하고 나머지는 개수만 센다.
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    private static final String CSV_HEADER = "name,city,street,zipcode";
+    private static final int MAX_RETRIES = 3;
+
+    @PersistenceContext
+    private final EntityManager em;
+    private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public MemberImportService(EntityManager em,
+                               MemberRepository memberRepository,
+                               MemberNameFilter memberNameFilter,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${jpashop.member.import.chunk-size:1000}") int chunkSize,
+                               @Value("${jpashop.member.import.max-errors:1000}") int maxErrors) {
+        this.em = em;
+        this.memberRepository = memberRepository;
+        this.memberNameFilter = memberNameFilter;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @return 마지막 진행 상황(done=true), listener에도 같이 넘긴다.
+     */
+    public MemberImportProgress importMembers(BufferedReader reader, MemberImportFormat format,
+                                              Consumer<MemberImportProgress> listener) throws IOException {
+        Job job = new Job(listener);
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            job.lines++;
+            if (!StringUtils.hasText(line) || (format == MemberImportFormat.CSV && job.lines == 1 && CSV_HEADER.equals(line.trim()))) {
+                continue;
+            }
+            try {
+                chunk.add(format == MemberImportFormat.CSV ? parseCsv(job.lines, line) : parseJson(job.lines, line));
+            } catch (IOException | IllegalArgumentException e) {
+                job.fail(job.lines, null, "형식 오류: " + e.getMessage());
+            }
+            if (chunk.size() >= chunkSize) {
+                saveChunk(job, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(job, chunk);
+        }
+
+        MemberImportProgress result = job.progress(true);
+        listener.accept(result);
+        log.info("회원 일괄 등록 완료 lines={}, imported={}, failed={}", job.lines, job.imported, job.failed);
+        return result;
+    }
+
+    private void saveChunk(Job job, List<Row> chunk) {
+        //파일 안 중복, 빈 이름은 DB에 가지 않고 거른다.
+        List<Row> valid = new ArrayList<>(chunk.size());
+        Set<String> names = new HashSet<>();
+        for (Row row : chunk) {
+            if (!StringUtils.hasText(row.name)) {
+                job.fail(row.line, row.name, "이름이 비어있습니다.");
+            } else if (!names.add(row.name)) {
+                job.fail(row.line, row.name, "파일 안에서 중복된 이름입니다.");
+            } else {
+                valid.add(row);
+            }
+        }
+
+        List<String> imported = new ArrayList<>(valid.size());
+        List<Row> existing = new ArrayList<>();
+        for (int attempt = 0; ; attempt++) {
+            boolean checkAll = attempt > 0;
+            imported.clear();
+            existing.clear();
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(valid, imported, existing, checkAll));
+                break;
+            } catch (DataIntegrityViolationException e) {
+                //확인한 뒤에 다른 요청이 같은 이름으로 가입한 경우 chunk 전체가 롤백된다. 모든 이름을 다시 확인해서 다시 저장한다.
+                if (MemberService.isDuplicateName(e) && attempt < MAX_RETRIES) {
+                    log.info("회원 일괄 등록 chunk 재시도 chunk={}, attempt={}", job.chunk + 1, attempt + 1);
+                    continue;
+                }
+                log.warn("회원 일괄 등록 chunk 실패 chunk={}, line={}", job.chunk + 1, job.lines, e);
+                for (Row row : valid) {
+                    job.fail(row.line, row.name, "동시에 가입된 이름이 있어 chunk를 저장하지 못했습니다.");
+                }
+                imported.clear();
+                existing.clear();
+                break;
+            }
+        }
+        existing.forEach(row -> job.fail(row.line, row.name, "이미 존재하는 회원입니다."));
+        imported.forEach(memberNameFilter::put);
+        job.imported += imported.size();
+
+        job.chunk++;
+        job.listener.accept(job.progress(false));
+        job.errors = new ArrayList<>();
+    }
+
+    /**
+     * 이미 있는 이름을 IN 쿼리 한번으로 확인하고 나머지를 insert
+     * flush는 리포지토리로 해야 제약조건 위반이 DataIntegrityViolationException으로 바뀐다.
+     * @param checkAll 필터에 없는 이름도 확인한다.(다른 서버에서 가입한 이름은 이 서버 필터에 없다.)
+     */
+    private void insert(List<Row> rows, List<String> imported, List<Row> existing, boolean checkAll) {
+        em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE); //일괄 등록한 회원은 2차 캐시에 넣지 않는다.
+
+        List<String> candidates = rows.stream()
+                .map(row -> row.name)
+                .filter(name -> checkAll || memberNameFilter.mightContain(name))
+                .collect(toList());
+        Set<String> existingNames = candidates.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(memberRepository.findNamesIn(candidates));
+
+        for (Row row : rows) {
+            if (existingNames.contains(row.name)) {
+                existing.add(row);
+                continue;
+            }
+            Member member = new Member();
+            member.setName(row.name);
+            member.setAddress(row.address);
+            em.persist(member);
+            imported.add(row.name);
+        }
+        memberRepository.flush();
+        em.clear();
+    }
+
+    private Row parseJson(long line, String text) throws IOException {
+        JsonNode node = objectMapper.readTree(text);
+        return new Row(line, node.path("name").asText(null),
+                address(node.path("city").asText(null), node.path("street").asText(null), node.path("zipcode").asText(null)));
+    }
+
+    private static Row parseCsv(long line, String text) {
+        String[] fields = text.split(",", -1);
+        if (fields.length > 4) {
+            throw new IllegalArgumentException("컬럼은 name,city,street,zipcode 4개까지입니다.");
+        }
+        return new Row(line, field(fields, 0), address(field(fields, 1), field(fields, 2), field(fields, 3)));
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length && StringUtils.hasText(fields[index]) ? fields[index].trim() : null;
+    }
+
+    private static Address address(String city, String street, String zipcode) {
+        return city == null && street == null && zipcode == null ? null : new Address(city, street, zipcode);
+    }
+
+    private static class Row {
+        private final long line;
+        private final String name;
+        private final Address address;
+
+        Row(long line, String name, Address address) {
+            this.line = line;
+            this.name = name == null ? null : name.trim();
+            this.address = address;
+        }
+    }
+
+    /**
+     * 요청 하나의 진행 상황
+     */
+    private class Job {
+        private final Consumer<MemberImportProgress> listener;
+        private int chunk;
+        private long lines;
+        private long imported;
+        private long failed;
+        private long reportedErrors;
+        private List<MemberImportProgress.RowError> errors = new ArrayList<>();
+
+        Job(Consumer<MemberImportProgress> listener) {
+            this.listener = listener;
+        }
+
+        void fail(long line, String name, String message) {
+            failed++;
+            if (reportedErrors < maxErrors) {
+                reportedErrors++;
+                errors.add(new MemberImportProgress.RowError(line, name, message));
+            }
+        }
+
+        MemberImportProgress progress(boolean done) {
+            return new MemberImportProgress(chunk, lines, imported, failed, done, errors);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * 회원 이름 Bloom filter
+ *
+ * 가입할 때마다 이름으로 DB를 조회하지 않도록 가입된 이름을 비트 배열에 기록해둔다.
+ * mightContain()이 false면 그 이름은 확실히 없으므로 DB를 조회하지 않는다.
+ * true면 있을 수도 있으므로(false positive) DB에서 확인해야 한다.
+ *
+ * 시작할 때 회원 이름 전체를 스트리밍으로 읽어서 채우고, 채우기 전에는 항상 true를 반환한다.
+ * 삭제는 지원하지 않는다.(이름이 바뀌거나 가입이 롤백되어도 남아있지만 false positive가 늘어날 뿐이다.)
+ * 중복 가입을 막는 것은 unique 제약조건(uk_member_name)이고, 이 필터는 조회를 줄이기 위한 것이다.
+ *
+ * 크기는 expectedInsertions, falsePositiveRate로 정한다.(100만건, 1% -> 약 1.2MB, 해시 7개)
+ * 비트는 AtomicLongArray에 CAS로 설정하므로 락 없이 여러 스레드가 같이 쓸 수 있다.
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long expectedInsertions;
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+    private volatile boolean ready;
+
+    public MemberNameFilter(MemberRepository memberRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.member.name-filter.enabled:true}") boolean enabled,
+                            @Value("${jpashop.member.name-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${jpashop.member.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.memberRepository = memberRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (bitSize + 63) / 64);
+        this.bits = new AtomicLongArray(enabled ? words : 1);
+        this.bitSize = (long) bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * @return false면 확실히 없는 이름, true면 DB에서 확인해야 한다.
+     */
+    public boolean mightContain(String name) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long hash1 = hash(name);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String name) {
+        if (!enabled) {
+            return;
+        }
+        long hash1 = hash(name);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        if (insertions.incrementAndGet() == expectedInsertions + 1) {
+            log.warn("회원 이름 필터가 예상 크기({})를 넘었습니다. false positive가 늘어납니다.", expectedInsertions);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 회원 이름 전체를 스트리밍으로 읽어서 채운다.
+     * 이름만 읽으므로 엔티티를 만들지 않고, 채우는 동안 가입한 이름은 put()으로 같이 들어간다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> names = memberRepository.streamAllNames()) {
+                names.forEach(this::put);
+            }
+        });
+        ready = true;
+        log.info("회원 이름 필터 준비 완료 names={}, bits={}, hashes={}, {}ms",
+                insertions.get(), bitSize, hashCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitSize;
+    }
+
+    /**
+     * FNV-1a 64bit + murmur3 finalizer
+     */
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
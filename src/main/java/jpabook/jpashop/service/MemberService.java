@@ -4,44 +4,126 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.MemberRepositoryOld;
+import jpabook.jpashop.repository.MemberSummary;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class MemberService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String MEMBER_NAME_CONSTRAINT = "uk_member_name";
+
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
 
     /**
      * 회원 가입
+     * 동시에 같은 이름으로 가입하면 둘 다 검증을 통과할 수 있으므로
+     * 바로 insert(flush)해서 unique 제약조건(uk_member_name) 위반도 같은 예외로 바꾼다.
+     * 다른 제약조건 위반은 그대로 던진다.
      */
     @Transactional
     public Long join(Member member) {
-        validateDuplicateMember(member);
-        memberRepository.save(member);
+        validateDuplicateMember(member.getName());
+        try {
+            memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateName(e);
+        }
+        memberNameFilter.put(member.getName());
         return member.getId();
     }
 
     /***
      * 중복 회원 검증
+     * 필터에 없는 이름이면 DB를 조회하지 않는다. 있을 수도 있는 경우에만 exists 쿼리로 확인한다.
      */
-    private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if(!findMembers.isEmpty()) {
+    private void validateDuplicateMember(String name) {
+        if (memberNameFilter.mightContain(name) && memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
     /**
-     * 회원 전체 조회
+     * 이름 unique 제약조건 위반이면 중복 회원 예외, 아니면 그대로
+     */
+    private static RuntimeException translateDuplicateName(DataIntegrityViolationException e) {
+        return isDuplicateName(e) ? new IllegalStateException("이미 존재하는 회원입니다.", e) : e;
+    }
+
+    /**
+     * uk_member_name 위반인지 (H2 제약조건 이름은 PUBLIC.UK_MEMBER_NAME_INDEX_8 처럼 온다.)
+     */
+    static boolean isDuplicateName(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+        String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraintName != null && constraintName.toLowerCase().contains(MEMBER_NAME_CONSTRAINT);
+    }
+
+    /**
+     * 회원 목록 (id 순 keyset 페이징)
+     * 회원 수와 상관없이 한번에 limit(최대 MAX_PAGE_SIZE)명만 읽는다.
+     * @param lastId 이전 페이지 마지막 회원 id (첫 페이지는 null)
+     */
+    public List<Member> findMembers(Long lastId, int limit) {
+        return memberRepository.findByIdGreaterThanOrderByIdAsc(startId(lastId), page(limit));
+    }
+
+    /**
+     * 회원 목록 projection (엔티티를 만들지 않는다.)
+     * 다음 페이지 여부는 limit이 아니라 실제로 적용한 페이지 크기로 판단한다.
+     */
+    public MemberSummaryPage findMemberSummaries(Long lastId, int limit) {
+        int pageSize = pageSize(limit);
+        List<MemberSummary> members = memberRepository.findSummariesAfter(startId(lastId), PageRequest.of(0, pageSize));
+        Long nextLastId = members.size() == pageSize ? members.get(members.size() - 1).getId() : null;
+        return new MemberSummaryPage(members, nextLastId);
+    }
+
+    /**
+     * 이름 앞부분으로 회원 검색 (주문 화면 자동완성)
+     */
+    public List<MemberSummary> searchMembers(String namePrefix, int limit) {
+        String escaped = namePrefix.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return memberRepository.findSummariesByNameLike(escaped + "%", page(limit));
+    }
+
+    /**
+     * 전체 회원 수 (필요할 때만, 회원이 많으면 전체를 세야 하므로 비싸다.)
+     */
+    public long countMembers() {
+        return memberRepository.count();
+    }
+
+    private static Long startId(Long lastId) {
+        return lastId == null ? Long.MIN_VALUE : lastId;
+    }
+
+    private static Pageable page(int limit) {
+        return PageRequest.of(0, pageSize(limit));
+    }
+
+    /**
+     * 실제로 적용하는 페이지 크기 (1 ~ MAX_PAGE_SIZE)
      */
-    public List<Member> findMembers() {
-        return memberRepository.findAll();
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 
     /***
@@ -51,10 +133,26 @@ public class MemberService {
         return memberRepository.findById(memberId).get();
     }
 
+    /**
+     * 회원 수정
+     * 이름이 바뀌면 가입과 같이 중복을 검증하고 바로 update(flush)해서 unique 제약조건 위반을 같은 예외로 바꾼다.
+     */
     @Transactional
     public void update(Long id, String name, Address address) {
         Member member = memberRepository.findById(id).get();
+        boolean nameChanged = !Objects.equals(member.getName(), name);
+        if (nameChanged) {
+            validateDuplicateMember(name);
+        }
         member.setName(name);
         member.setAddress(address);
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateName(e);
+        }
+        if (nameChanged) {
+            memberNameFilter.put(name);
+        }
     }
 }
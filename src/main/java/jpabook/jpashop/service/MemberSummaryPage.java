@@ -0,0 +1,18 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberSummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 회원 목록 한 페이지 (id 순 keyset)
+ * nextLastId는 실제로 적용한 페이지 크기만큼 찼을 때 마지막 회원 id, 마지막 페이지면 null
+ */
+@Getter
+@AllArgsConstructor
+public class MemberSummaryPage {
+    private final List<MemberSummary> members;
+    private final Long nextLastId;
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 비동기 주문 접수 설정
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.order.intake")
+public class OrderIntakeProperties {
+
+    /**
+     * 대기열 크기, 가득 차면 접수하지 않고 429로 응답한다.
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 대기열을 처리하는 스레드 수 (커넥션 풀보다 작아야 한다. 0이면 처리하지 않음)
+     */
+    private int workers = 4;
+
+    /**
+     * 트랜잭션 한번에 저장할 최대 주문 수
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * 처리가 끝난 접수 번호를 조회할 수 있는 시간
+     */
+    private Duration ticketTtl = Duration.ofMinutes(10);
+
+    /**
+     * 종료시 남은 대기열을 처리하며 기다리는 최대 시간
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,250 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 비동기 주문 접수
+ *
+ * 요청 스레드는 주문을 대기열에 넣고 접수 번호만 받아서 바로 응답한다.
+ * 대기열이 가득 차면 OrderQueueFullException(429)으로 거절해서 요청이 쌓이지 않게 한다.
+ *
+ * 정해진 수의 스레드가 대기열에서 최대 maxBatchSize 개씩 꺼내 OrderService.orderBatch()로 한번에 저장한다.
+ * orderBatch는 한 건만 실패해도 전체가 롤백되므로, 실패하면 한 건씩 다시 주문해서 실패한 주문만 골라낸다.
+ * hot 상품은 재고를 HotStockLedger에서 예약해야 하므로 처음부터 한 건씩 OrderStockFacade로 주문한다.
+ *
+ * 대기열은 메모리에만 있으므로 비정상 종료시 처리하지 못한 주문은 유실된다.(접수 번호 조회시 찾을 수 없음)
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    private final OrderService orderService;
+    private final OrderStockFacade orderStockFacade;
+    private final HotStockLedger hotStockLedger;
+    private final OrderIntakeProperties properties;
+
+    private final BlockingQueue<OrderCommand> queue;
+    private final Map<String, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private volatile boolean accepting = true;
+    private ExecutorService workers;
+
+    private final Timer completedLatency;
+    private final Timer failedLatency;
+    private final Counter rejected;
+    private final DistributionSummary batchSize;
+
+    public OrderIntakeService(OrderService orderService,
+                              OrderStockFacade orderStockFacade,
+                              HotStockLedger hotStockLedger,
+                              OrderIntakeProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.orderStockFacade = orderStockFacade;
+        this.hotStockLedger = hotStockLedger;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        //접수부터 커밋(또는 실패)까지 걸린 시간
+        this.completedLatency = latencyTimer("completed", meterRegistry);
+        this.failedLatency = latencyTimer("failed", meterRegistry);
+        this.rejected = Counter.builder("jpashop.order.intake.rejected")
+                .description("대기열이 가득 차서 거절한 주문 수")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("jpashop.order.intake.batch.size")
+                .description("트랜잭션 한번에 저장한 주문 수")
+                .register(meterRegistry);
+        Gauge.builder("jpashop.order.intake.queue.size", queue, BlockingQueue::size)
+                .description("처리 대기중인 주문 수")
+                .register(meterRegistry);
+    }
+
+    private static Timer latencyTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("jpashop.order.intake.latency")
+                .description("주문 접수부터 처리 완료까지 걸린 시간")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 주문 접수
+     * @throws OrderQueueFullException 대기열이 가득 찼거나 종료중이면 접수하지 않는다.
+     */
+    public OrderTicket submit(OrderLine orderLine) {
+        OrderTicket ticket = new OrderTicket(UUID.randomUUID().toString());
+        tickets.put(ticket.getId(), ticket);
+        if (!accepting || !queue.offer(new OrderCommand(ticket, orderLine))) {
+            tickets.remove(ticket.getId());
+            rejected.increment();
+            throw new OrderQueueFullException("주문 대기열이 가득 찼습니다. 잠시 후 다시 시도해주세요.");
+        }
+        return ticket;
+    }
+
+    public OrderTicket findTicket(String ticketId) {
+        return tickets.get(ticketId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * hot 상품 장부가 로딩된 뒤에 처리를 시작한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int workerCount = properties.getWorkers();
+        if (workerCount <= 0) {
+            log.warn("주문 대기열 처리 스레드가 없습니다. 접수된 주문은 처리되지 않습니다.");
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    /**
+     * 종료시 새 주문은 거절하고 대기열에 남은 주문은 처리한 뒤 종료한다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("주문 대기열을 모두 처리하지 못하고 종료합니다. 남은 주문 수={}", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private void drain() {
+        List<OrderCommand> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (accepting || !queue.isEmpty()) {
+            OrderCommand first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            //대기중인 주문을 최대 maxBatchSize 개까지 모아서 한번에 처리
+            batch.add(first);
+            queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+            try {
+                process(batch);
+            } catch (RuntimeException e) {
+                //처리 스레드가 죽으면 대기열이 멈추므로 예외를 밖으로 던지지 않는다.
+                log.error("주문 대기열 처리 실패 batchSize={}", batch.size(), e);
+                batch.stream().filter(c -> !c.ticket.isFinished()).forEach(c -> fail(c, e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void process(List<OrderCommand> commands) {
+        List<OrderCommand> normal = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            if (hotStockLedger.isHot(command.orderLine.getItemId())) {
+                orderOneByOne(command);
+            } else {
+                normal.add(command);
+            }
+        }
+        if (normal.isEmpty()) {
+            return;
+        }
+
+        batchSize.record(normal.size());
+        List<Long> orderIds;
+        try {
+            orderIds = orderService.orderBatch(normal.stream().map(c -> c.orderLine).collect(toList()));
+        } catch (RuntimeException e) {
+            log.debug("일괄 주문 실패, 한 건씩 다시 주문합니다. batchSize={}", normal.size(), e);
+            normal.forEach(this::orderOneByOne);
+            return;
+        }
+        for (int i = 0; i < normal.size(); i++) {
+            complete(normal.get(i), orderIds.get(i));
+        }
+    }
+
+    /**
+     * 재고 충돌은 OrderStockFacade에서 재시도한다.
+     */
+    private void orderOneByOne(OrderCommand command) {
+        OrderLine line = command.orderLine;
+        try {
+            complete(command, orderStockFacade.order(line.getMemberId(), line.getItemId(), line.getCount()));
+        } catch (RuntimeException e) {
+            fail(command, e);
+        }
+    }
+
+    private void complete(OrderCommand command, Long orderId) {
+        command.ticket.complete(orderId);
+        completedLatency.record(System.nanoTime() - command.enqueuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void fail(OrderCommand command, RuntimeException e) {
+        command.ticket.fail(e.getMessage());
+        failedLatency.record(System.nanoTime() - command.enqueuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 처리가 끝나고 ticketTtl이 지난 접수 번호 정리
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeTickets() {
+        LocalDateTime expiredAt = LocalDateTime.now().minus(properties.getTicketTtl());
+        tickets.values().removeIf(t -> t.isFinished() && t.getFinishedAt().isBefore(expiredAt));
+    }
+
+    private static class OrderCommand {
+        private final OrderTicket ticket;
+        private final OrderLine orderLine;
+        private final long enqueuedAt = System.nanoTime();
+
+        OrderCommand(OrderTicket ticket, OrderLine orderLine) {
+            this.ticket = ticket;
+            this.orderLine = orderLine;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 일괄 주문의 주문 한 건
+ */
+@Getter
+public class OrderLine {
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+
+    public OrderLine(Long memberId, Long itemId, int count) {
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -1,19 +1,37 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryOutbox;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.StockReservation;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderTargetNotFoundException;
+import jpabook.jpashop.repository.DeliveryOutboxRepository;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepositoryOld;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.StockReservationRepository;
+import jpabook.jpashop.repository.order.search.OrderListDto;
+import jpabook.jpashop.repository.order.search.OrderSearchRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +41,9 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepositoryOld memberRepository;
     private final ItemRepository itemRepository;
+    private final OrderSearchRepository orderSearchRepository;
+    private final DeliveryOutboxRepository deliveryOutboxRepository;
+    private final StockReservationRepository stockReservationRepository;
 
     /***
      * 주문
@@ -34,8 +55,7 @@ public class OrderService {
         Item item = itemRepository.findOne(itemId);
 
         //배송정보 생성
-        Delivery delivery = new Delivery();
-        delivery.setAddress(member.getAddress());
+        Delivery delivery = createDelivery(member);
 
         //주문 상품 생성
         OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
@@ -45,10 +65,131 @@ public class OrderService {
 
         //주문 저장
         orderRepository.save(order);
+        deliveryOutboxRepository.save(DeliveryOutbox.of(order));
+
+        return order.getId();
+    }
+
+    /***
+     * 일괄 주문
+     * 주문마다 트랜잭션 + 회원/상품 조회 + insert를 하지 않고
+     * 필요한 회원, 상품은 IN 쿼리로 한번에 조회하고 insert는 커밋시 jdbc batch로 모아서 보낸다.
+     * (id를 시퀀스로 미리 할당하므로 insert를 batch로 묶을 수 있다.)
+     * 하나라도 실패하면 전체 주문이 롤백된다.
+     * 재고는 상품 row에서 차감하므로 hot 상품은 OrderStockFacade.orderBatch()로 주문해야 한다.
+     * @throws OrderTargetNotFoundException 없는 회원, 상품이 있으면 주문하지 않고 없는 id를 모두 알려준다.
+     */
+    @Transactional
+    public List<Long> orderBatch(List<OrderLine> orderLines) {
+        return orderBatch(orderLines, Set.of());
+    }
+
+    /***
+     * 일괄 주문 (일부 상품은 HotStockLedger에서 메모리로 예약)
+     * reservedItemIds 상품은 상품 row를 변경하지 않고 예약 기록을 주문과 같은 트랜잭션에 저장한다.
+     */
+    @Transactional
+    public List<Long> orderBatch(List<OrderLine> orderLines, Set<Long> reservedItemIds) {
+        //엔티티 조회
+        Map<Long, Member> members = memberRepository.findAllByIds(
+                        orderLines.stream().map(OrderLine::getMemberId).collect(toSet()))
+                .stream()
+                .collect(toMap(Member::getId, member -> member));
+        Map<Long, Item> items = itemRepository.findAllByIds(
+                        orderLines.stream().map(OrderLine::getItemId).collect(toSet()))
+                .stream()
+                .collect(toMap(Item::getId, item -> item));
+
+        //없는 회원, 상품은 모아서 한번에 알려준다.
+        Set<Long> unknownMemberIds = orderLines.stream().map(OrderLine::getMemberId)
+                .filter(memberId -> !members.containsKey(memberId))
+                .collect(toCollection(TreeSet::new));
+        Set<Long> unknownItemIds = orderLines.stream().map(OrderLine::getItemId)
+                .filter(itemId -> !items.containsKey(itemId))
+                .collect(toCollection(TreeSet::new));
+        if (!unknownMemberIds.isEmpty() || !unknownItemIds.isEmpty()) {
+            throw new OrderTargetNotFoundException(unknownMemberIds, unknownItemIds);
+        }
+
+        List<Long> orderIds = new ArrayList<>(orderLines.size());
+        for (OrderLine orderLine : orderLines) {
+            Member member = members.get(orderLine.getMemberId());
+            Item item = items.get(orderLine.getItemId());
+
+            //배송정보 생성
+            Delivery delivery = createDelivery(member);
+
+            //주문 상품 생성(예약한 상품은 재고가 이미 차감됨)
+            boolean reserved = reservedItemIds.contains(item.getId());
+            OrderItem orderItem = reserved
+                    ? OrderItem.createOrderItemWithoutStock(item, item.getPrice(), orderLine.getCount())
+                    : OrderItem.createOrderItem(item, item.getPrice(), orderLine.getCount());
+
+            //주문 생성
+            Order order = Order.createOrder(member, delivery, orderItem);
+
+            //주문 저장
+            orderRepository.save(order);
+            deliveryOutboxRepository.save(DeliveryOutbox.of(order));
+            if (reserved) {
+                stockReservationRepository.save(StockReservation.of(item.getId(), order.getId(), orderLine.getCount()));
+            }
+            orderIds.add(order.getId());
+        }
+
+        return orderIds;
+    }
+
+    /***
+     * 주문 (조건부 update로 재고 차감)
+     * 재고를 읽고 쓰는 사이에 다른 주문이 끼어들지 못하도록 DB에서 한번에 검사 + 차감한다.
+     */
+    @Transactional
+    public Long orderWithAtomicStock(Long memberId, Long itemId, int count) {
+        //재고 차감
+        if (itemRepository.decreaseStock(itemId, count) == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        return orderWithReservedStock(memberId, itemId, count);
+    }
+
+    /***
+     * 주문 (재고를 이미 확보한 경우)
+     * 재고는 호출하는 쪽에서 차감(조건부 update, 메모리 예약 등)했으므로 상품 row를 변경하지 않는다.
+     */
+    @Transactional
+    public Long orderWithReservedStock(Long memberId, Long itemId, int count) {
+        //엔티티 조회
+        Member member = memberRepository.findOne(memberId);
+        Item item = itemRepository.findOne(itemId);
+
+        //배송정보 생성
+        Delivery delivery = createDelivery(member);
+
+        //주문 상품 생성(재고는 이미 차감됨)
+        OrderItem orderItem = OrderItem.createOrderItemWithoutStock(item, item.getPrice(), count);
+
+        //주문 생성
+        Order order = Order.createOrder(member, delivery, orderItem);
+
+        //주문 저장
+        orderRepository.save(order);
+        deliveryOutboxRepository.save(DeliveryOutbox.of(order));
 
         return order.getId();
     }
 
+    /***
+     * 주문 (hot 상품, 재고는 HotStockLedger에서 메모리로 예약)
+     * 예약 기록을 주문과 같은 트랜잭션에 저장하므로, 주문이 커밋되면 차감할 재고도 DB에 남는다.
+     */
+    @Transactional
+    public Long orderWithStockReservation(Long memberId, Long itemId, int count) {
+        Long orderId = orderWithReservedStock(memberId, itemId, count);
+        stockReservationRepository.save(StockReservation.of(itemId, orderId, count));
+        return orderId;
+    }
+
     /***
      * 주문 취소
      */
@@ -58,8 +199,33 @@ public class OrderService {
         order.cancel(); //데이터만 바꾸면 jpa가 dirty checking을 해서 update 쿼리를 날린다.
     }
     
+    /***
+     * 배송 완료
+     * 배송 상태 변경은 outbox에 같이 기록해서 배송 시스템이 가져가게 한다.
+     */
+    @Transactional
+    public void completeDelivery(Long orderId) {
+        Order order = orderRepository.findOne(orderId);
+        if (order.getStatus() == OrderStatus.CANCEL) {
+            throw new IllegalStateException("취소된 주문은 배송완료 처리할 수 없습니다.");
+        }
+        Delivery delivery = order.getDelivery();
+        if (delivery.getDeliveryStatus() == DeliveryStatus.COMP) {
+            return;
+        }
+        delivery.setDeliveryStatus(DeliveryStatus.COMP);
+        deliveryOutboxRepository.save(DeliveryOutbox.of(order));
+    }
+
+    private Delivery createDelivery(Member member) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        delivery.setDeliveryStatus(DeliveryStatus.READY);
+        return delivery;
+    }
+
     //검색
-    public List<Order> findOrder(OrderSearch orderSearch) {
-        return orderRepository.findAll(orderSearch);
+    public List<OrderListDto> findOrder(OrderSearch orderSearch) {
+        return orderSearchRepository.search(orderSearch);
     }
 }
@@ -0,0 +1,134 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * 재고 경합을 고려한 주문 진입점
+ *
+ * OPTIMISTIC: 충돌은 커밋 시점에 발생하므로 트랜잭션 밖에서 재시도해야 한다.
+ *             그래서 OrderService(트랜잭션)를 감싸는 별도 빈으로 분리했다.
+ * ATOMIC: 조건부 update라 충돌이 없으므로 재시도도 없다.
+ *
+ * hot 상품(jpashop.stock.hot-items)은 모드와 상관없이 HotStockLedger에서 메모리로 재고를 예약한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStockFacade {
+
+    private final OrderService orderService;
+    private final HotStockLedger hotStockLedger;
+
+    @Value("${jpashop.stock.mode:OPTIMISTIC}")
+    private StockMode stockMode;
+
+    @Value("${jpashop.stock.max-retries:10}")
+    private int maxRetries;
+
+    public Long order(Long memberId, Long itemId, int count) {
+        return order(stockMode, memberId, itemId, count);
+    }
+
+    public Long order(StockMode mode, Long memberId, Long itemId, int count) {
+        if (hotStockLedger.isHot(itemId)) {
+            return orderHotItem(memberId, itemId, count);
+        }
+        if (mode == StockMode.ATOMIC) {
+            return orderService.orderWithAtomicStock(memberId, itemId, count);
+        }
+        return orderWithRetry(memberId, itemId, count);
+    }
+
+    /**
+     * 재고가 부족하면 reserve()에서 NotEnoughStockException이 발생하므로 DB까지 가지 않는다.
+     * 주문 저장이 실패하면 예약한 재고를 돌려놓는다.
+     */
+    private Long orderHotItem(Long memberId, Long itemId, int count) {
+        hotStockLedger.reserve(itemId, count);
+        try {
+            return orderService.orderWithStockReservation(memberId, itemId, count);
+        } catch (RuntimeException e) {
+            hotStockLedger.release(itemId, count);
+            throw e;
+        }
+    }
+
+    /**
+     * 일괄 주문
+     * hot 상품 재고를 상품 row에서 바로 차감하면 HotStockLedger가 모르는 차감이 생겨 초과 판매되므로,
+     * hot 상품은 먼저 장부에서 예약하고 주문과 같은 트랜잭션에 예약 기록을 저장한다.
+     * 일괄 주문은 하나라도 실패하면 전체가 롤백되므로 예약한 재고도 모두 돌려놓는다.
+     * 나머지 상품은 상품 row에서 차감하므로(낙관적 락) 같은 상품을 주문한 다른 주문과 충돌하면 전체를 재시도한다.
+     * @throws NotEnoughStockException hot 상품 재고가 부족하면 DB에 가지 않고 바로 실패
+     */
+    public List<Long> orderBatch(List<OrderLine> orderLines) {
+        List<OrderLine> reserved = new ArrayList<>();
+        try {
+            for (OrderLine orderLine : orderLines) {
+                if (hotStockLedger.isHot(orderLine.getItemId())) {
+                    hotStockLedger.reserve(orderLine.getItemId(), orderLine.getCount());
+                    reserved.add(orderLine);
+                }
+            }
+            return orderBatchWithRetry(orderLines, reserved.stream().map(OrderLine::getItemId).collect(toSet()));
+        } catch (RuntimeException e) {
+            reserved.forEach(orderLine -> hotStockLedger.release(orderLine.getItemId(), orderLine.getCount()));
+            throw e;
+        }
+    }
+
+    private Long orderWithRetry(Long memberId, Long itemId, int count) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return orderService.order(memberId, itemId, count);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.debug("재고 충돌로 주문 재시도 itemId={}, attempt={}", itemId, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 예약한 재고는 재시도해도 그대로 쓴다.
+     */
+    private List<Long> orderBatchWithRetry(List<OrderLine> orderLines, Set<Long> reservedItemIds) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return orderService.orderBatch(orderLines, reservedItemIds);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.debug("재고 충돌로 일괄 주문 재시도 batchSize={}, attempt={}", orderLines.size(), attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 같은 상품에 몰린 주문들이 동시에 다시 충돌하지 않도록 조금씩 다르게 쉰다.
+     */
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, Math.min(attempt, 10) * 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 재시도 중 인터럽트가 발생했습니다.", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 비동기 주문 접수 번호
+ * 주문 id는 저장할 때 할당되므로 접수시에는 접수 번호를 돌려주고,
+ * 처리가 끝나면 주문 id(성공) 또는 실패 사유를 채운다.
+ */
+@Getter
+public class OrderTicket {
+
+    public enum Status {
+        PENDING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final LocalDateTime acceptedAt;
+    private volatile Status status = Status.PENDING;
+    private volatile Long orderId;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+
+    OrderTicket(String id) {
+        this.id = id;
+        this.acceptedAt = LocalDateTime.now();
+    }
+
+    void complete(Long orderId) {
+        this.orderId = orderId;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    boolean isFinished() {
+        return status != Status.PENDING;
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.service;
+
+/**
+ * 주문시 재고 차감 방식
+ */
+public enum StockMode {
+    /**
+     * 엔티티를 읽고 변경감지로 차감, @Version 충돌시 재시도
+     */
+    OPTIMISTIC,
+    /**
+     * 조건부 update 한번으로 차감
+     */
+    ATOMIC
+}
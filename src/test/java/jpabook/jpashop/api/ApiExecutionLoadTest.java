@@ -0,0 +1,158 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 커넥션 풀의 2배 동시 요청에서 /api/v5/orders를 오류 없이 처리하는지 검증 (BLOCKING, ASYNC)
+ * ASYNC 대기열이 가득 찼을 때 503으로 거절하는지는 QueueFull에서 검증한다.
+ * (응답 시간, 처리량 비교는 ApiExecutionBenchmark)
+ */
+@RunWith(Enclosed.class)
+public class ApiExecutionLoadTest {
+
+    private static final int POOL_SIZE = 4;
+    private static final int CLIENTS = POOL_SIZE * 2;
+    private static final int REQUESTS = 100;
+    private static final String URL = "/api/v5/orders";
+
+    public abstract static class ApiExecutionLoad {
+
+        @LocalServerPort
+        int port;
+
+        protected void requestConcurrently() throws Exception {
+            HttpClient client = HttpClient.newBuilder().build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + URL)).GET().build();
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger errors = new AtomicInteger();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < REQUESTS; i++) {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            clients.shutdown();
+
+            assertEquals("모든 요청이 성공해야 한다.", 0, errors.get());
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "jpashop.api.execution=BLOCKING",
+            "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:api-blocking"
+    })
+    public static class Blocking extends ApiExecutionLoad {
+        @Test
+        public void 요청스레드에서_실행() throws Exception {
+            requestConcurrently();
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "jpashop.api.execution=ASYNC",
+            "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:api-async"
+    })
+    public static class Async extends ApiExecutionLoad {
+        @Test
+        public void 전용스레드에서_실행() throws Exception {
+            requestConcurrently();
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "jpashop.api.execution=ASYNC",
+            "jpashop.api.queue-capacity=" + QueueFull.QUEUE_CAPACITY,
+            "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:api-queue-full"
+    })
+    public static class QueueFull {
+
+        static final int QUEUE_CAPACITY = 2;
+
+        @LocalServerPort
+        int port;
+        @Autowired
+        ApiExecutor apiExecutor;
+
+        @Test
+        public void 대기열이_가득_차면_503() throws Exception {
+            HttpClient client = HttpClient.newBuilder().build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + URL)).GET().build();
+
+            //전용 스레드를 모두 붙잡고 대기열을 채운다.
+            //(쉬고 있는 스레드가 대기열에서 가져가기 전에 넣으면 대기열이 먼저 차므로 하나씩 시작을 기다린다.)
+            ThreadPoolExecutor executor = apiExecutor.getExecutor();
+            Semaphore running = new Semaphore(0);
+            CountDownLatch release = new CountDownLatch(1);
+            Runnable hold = () -> {
+                running.release();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            try {
+                for (int i = 0; i < POOL_SIZE; i++) {
+                    executor.execute(hold);
+                    assertTrue(running.tryAcquire(10, TimeUnit.SECONDS));
+                }
+                for (int i = 0; i < QUEUE_CAPACITY; i++) {
+                    executor.execute(hold);
+                }
+                assertEquals(QUEUE_CAPACITY, executor.getQueue().size());
+
+                HttpResponse<String> rejected = client.send(request, HttpResponse.BodyHandlers.ofString());
+                assertEquals("대기열이 가득 차면 ApiBusyException -> 503", 503, rejected.statusCode());
+            } finally {
+                release.countDown();
+            }
+
+            //비워지면 다시 처리한다.
+            HttpResponse<String> accepted = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, accepted.statusCode());
+        }
+    }
+}
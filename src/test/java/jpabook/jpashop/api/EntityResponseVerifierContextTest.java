@@ -0,0 +1,56 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ResolvableType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 실제 핸들러 매핑으로 EntityResponseVerifier 확인
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityResponseVerifierContextTest {
+
+    @Autowired
+    EntityResponseVerifier verifier;
+    @Autowired
+    RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    @Test
+    public void 모든_핸들러_반환_타입을_확인할_수_있다() throws Exception {
+        verifier.afterSingletonsInstantiated(); //예외가 발생하지 않아야 한다.
+
+        List<String> unresolved = new ArrayList<>();
+        int entityResponses = 0;
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : requestMappingHandlerMapping.getHandlerMethods().entrySet()) {
+            HandlerMethod handlerMethod = entry.getValue();
+            if (!handlerMethod.getBeanType().getName().startsWith("jpabook.jpashop.")) {
+                continue;
+            }
+            ResolvableType returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod());
+            if (!verifier.findUnresolvedTypes(returnType).isEmpty()) {
+                unresolved.add(entry.getKey() + " -> " + verifier.findUnresolvedTypes(returnType));
+            }
+            if (handlerMethod.hasMethodAnnotation(EntityResponse.class)) {
+                entityResponses++;
+                assertFalse("@EntityResponse 핸들러는 엔티티를 반환한다. " + entry.getKey(),
+                        verifier.findEntityTypes(returnType).isEmpty());
+            }
+        }
+
+        assertEquals(List.of(), unresolved);
+        assertTrue("V1 예제(@EntityResponse)까지 확인해야 한다.", entityResponses > 0);
+    }
+}
@@ -0,0 +1,90 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.core.ResolvableType;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class EntityResponseVerifierTest {
+
+    private final EntityResponseVerifier verifier = verifier();
+
+    @Test
+    public void 제네릭_안의_엔티티를_찾는다() throws Exception {
+        ResolvableType type = ResolvableType.forClassWithGenerics(CompletableFuture.class,
+                ResolvableType.forClassWithGenerics(List.class, Member.class));
+
+        assertEquals(Set.of(Member.class), verifier.findEntityTypes(type));
+    }
+
+    @Test
+    public void DTO_필드를_따라가서_엔티티를_찾는다() throws Exception {
+        ResolvableType type = ResolvableType.forClassWithGenerics(OrderApiController.Result.class,
+                ResolvableType.forClassWithGenerics(List.class, Order.class));
+
+        assertEquals(Set.of(Order.class), verifier.findEntityTypes(type));
+    }
+
+    @Test
+    public void DTO만_있으면_통과() throws Exception {
+        ResolvableType type = ResolvableType.forClassWithGenerics(OrderApiController.CursorResult.class,
+                ResolvableType.forClassWithGenerics(List.class, OrderApiController.OrderDto.class));
+
+        assertTrue(verifier.findEntityTypes(type).isEmpty());
+    }
+
+    @Test
+    public void 타입_인자가_없거나_알_수_없으면_찾는다() throws Exception {
+        assertEquals(Set.of(OrderApiController.Result.class.getName() + " (raw)"), unresolved("raw"));
+        assertFalse("Object", unresolved("object").isEmpty());
+        assertFalse("와일드카드", unresolved("wildcard").isEmpty());
+        assertFalse("DTO 필드의 raw 제네릭", unresolved("rawField").isEmpty());
+        assertTrue(unresolved("resolved").isEmpty());
+    }
+
+    private Set<String> unresolved(String handler) throws NoSuchMethodException {
+        return verifier.findUnresolvedTypes(ResolvableType.forMethodReturnType(Handlers.class.getDeclaredMethod(handler)));
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class Handlers {
+        CompletableFuture<OrderApiController.Result> raw() {
+            return null;
+        }
+
+        Object object() {
+            return null;
+        }
+
+        CompletableFuture<?> wildcard() {
+            return null;
+        }
+
+        OrderApiController.Result<RawFieldDto> rawField() {
+            return null;
+        }
+
+        CompletableFuture<OrderApiController.Result<List<OrderApiController.OrderDto>>> resolved() {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class RawFieldDto {
+        private List items;
+    }
+
+    private static EntityResponseVerifier verifier() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AutoConfigurationPackages.register(beanFactory, "jpabook.jpashop");
+        return new EntityResponseVerifier(null, beanFactory);
+    }
+}
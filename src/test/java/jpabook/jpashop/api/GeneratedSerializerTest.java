@@ -0,0 +1,127 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import jpabook.jpashop.config.LazyLoadingGuardModule;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 생성된 serializer(@GenerateSerializer)는 Jackson BeanSerializer와 같은 JSON을 써야 한다.
+ */
+public class GeneratedSerializerTest {
+
+    private final ObjectMapper generated = objectMapper();
+    private final ObjectMapper reflective = reflective(objectMapper());
+
+    @Test
+    public void 생성된_serializer를_사용한다() throws Exception {
+        Object serializer = generated.getSerializerProviderInstance().findValueSerializer(OrderApiController.OrderDto.class);
+        assertTrue(serializer instanceof OrderApiController_OrderDtoJsonSerializer);
+    }
+
+    @Test
+    public void 주문_DTO는_BeanSerializer와_같은_JSON() throws Exception {
+        Order order = order();
+        Order withoutMember = order();
+        withoutMember.getMember().setName(null);
+
+        assertSameJson(new OrderApiController.Result<>(List.of(
+                new OrderApiController.OrderDto(order), new OrderApiController.OrderDto(withoutMember))));
+        assertSameJson(new OrderApiController.Result<>(List.of(
+                new OrderSimpleApiController.SimpleOrderDto(order), new OrderSimpleApiController.SimpleOrderDto(withoutMember))));
+    }
+
+    @Test
+    public void 회원_DTO는_BeanSerializer와_같은_JSON() throws Exception {
+        assertSameJson(List.of(new MemberApiController.MemberDto("회원1"), new MemberApiController.MemberDto(null)));
+    }
+
+    @Test
+    public void NON_NULL이면_null_필드를_쓰지_않는다() throws Exception {
+        ObjectMapper generated = objectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        ObjectMapper reflective = reflective(objectMapper()).setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        Order withoutMember = order();
+        withoutMember.getMember().setName(null);
+        Object value = new OrderApiController.Result<>(List.of(
+                new OrderApiController.OrderDto(withoutMember), new OrderSimpleApiController.SimpleOrderDto(withoutMember),
+                new MemberApiController.MemberDto(null)));
+
+        String json = generated.writeValueAsString(value);
+
+        assertEquals(reflective.writeValueAsString(value), json);
+        assertFalse(json, json.contains("null"));
+        Object serializer = generated.getSerializerProviderInstance().findValueSerializer(OrderApiController.OrderDto.class);
+        assertTrue(serializer instanceof OrderApiController_OrderDtoJsonSerializer);
+    }
+
+    @Test
+    public void 지원하지_않는_inclusion이면_실패한다() {
+        ObjectMapper generated = objectMapper().setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+
+        InvalidDefinitionException e = assertThrows(InvalidDefinitionException.class,
+                () -> generated.writeValueAsString(new MemberApiController.MemberDto("회원1")));
+        assertTrue(e.getMessage(), e.getMessage().contains("NON_EMPTY"));
+    }
+
+    @Test
+    public void 지연_로딩_검사_모듈을_등록하면_BeanSerializer를_사용한다() throws Exception {
+        ObjectMapper guarded = objectMapper().registerModule(new LazyLoadingGuardModule());
+
+        Object serializer = guarded.getSerializerProviderInstance().findValueSerializer(OrderApiController.OrderDto.class);
+
+        assertTrue(serializer.getClass().getName(), serializer instanceof BeanSerializer);
+        Object value = new OrderApiController.Result<>(List.of(new OrderApiController.OrderDto(order())));
+        assertEquals(reflective.writeValueAsString(value), guarded.writeValueAsString(value));
+    }
+
+    private void assertSameJson(Object value) throws Exception {
+        assertEquals(reflective.writeValueAsString(value), generated.writeValueAsString(value));
+    }
+
+    private static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    private static ObjectMapper reflective(ObjectMapper objectMapper) {
+        return objectMapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findSerializer(Annotated a) {
+                return null; //@JsonSerialize(using = ...) 무시
+            }
+        });
+    }
+
+    private static Order order() {
+        Member member = new Member();
+        member.setName("회원1");
+        Delivery delivery = new Delivery();
+        delivery.setAddress(new Address("서울", "강가", "123"));
+
+        Book book = new Book();
+        book.setName("JPA 책");
+        book.setPrice(10000);
+        Order order = Order.createOrder(member, delivery,
+                OrderItem.createOrderItemWithoutStock(book, 10000, 2),
+                OrderItem.createOrderItemWithoutStock(book, 10000, 1));
+        order.setId(1L);
+        return order;
+    }
+}
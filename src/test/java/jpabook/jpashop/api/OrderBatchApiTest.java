@@ -0,0 +1,93 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/v1/orders/batch
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderBatchApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 일괄주문() throws Exception {
+        Member member = createMember();
+        Book book = createBook();
+
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch(member.getId(), book.getId(), member.getId(), book.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.orderIds.length()").value(2));
+    }
+
+    @Test
+    public void 없는_회원과_상품은_400으로_모두_알려준다() throws Exception {
+        Member member = createMember();
+        Book book = createBook();
+
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch(member.getId(), -3L, -1L, book.getId())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.memberIds", contains(-1)))
+                .andExpect(jsonPath("$.itemIds", contains(-3)));
+    }
+
+    /**
+     * (memberId, itemId) 쌍으로 수량 1인 주문 목록
+     */
+    private static String batch(Long... ids) {
+        StringBuilder orders = new StringBuilder();
+        for (int i = 0; i < ids.length; i += 2) {
+            if (orders.length() > 0) {
+                orders.append(',');
+            }
+            orders.append("{\"memberId\":").append(ids[i]).append(",\"itemId\":").append(ids[i + 1]).append(",\"count\":1}");
+        }
+        return "{\"orders\":[" + orders + "]}";
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("batch회원");
+        member.setAddress(new Address("서울", "강가", "123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook() {
+        Book book = new Book();
+        book.setName("batch책");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+}
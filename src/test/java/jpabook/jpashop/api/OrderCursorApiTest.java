@@ -0,0 +1,117 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /api/v3.2/orders keyset 페이징
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderCursorApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 주문일시가_같아도_빠짐없이_한번씩_조회() throws Exception {
+        //given 주문일시가 같은 주문 5개
+        LocalDateTime orderDate = LocalDateTime.of(2030, 1, 1, 0, 0);
+        List<Long> sameDateIds = new ArrayList<>();
+        Member member = createMember();
+        Book book = createBook();
+        for (int i = 0; i < 5; i++) {
+            Long orderId = orderService.order(member.getId(), book.getId(), 1);
+            em.find(Order.class, orderId).setOrderDate(orderDate);
+            sameDateIds.add(orderId);
+        }
+        em.flush();
+        em.clear();
+
+        //when 2개씩 끝까지
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = getPage(cursor, 2);
+            page.get("data").forEach(order -> walked.add(order.get("orderId").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        //then 중복, 누락 없이 id 순서대로
+        assertEquals("중복 없이", walked.size(), walked.stream().distinct().count());
+        List<Long> walkedSameDate = new ArrayList<>(walked);
+        walkedSameDate.retainAll(sameDateIds);
+        assertEquals(sameDateIds, walkedSameDate);
+    }
+
+    @Test
+    public void limit은_1부터_최대값까지() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("limit", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.2/orders").param("limit", "-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.2/orders").param("limit", "1001")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 잘못된_cursor는_400() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.2/orders").param("cursor", "!!!")).andExpect(status().isBadRequest());
+    }
+
+    private JsonNode getPage(String cursor, int limit) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v3.2/orders")
+                        .param("limit", String.valueOf(limit))
+                        .param("cursor", cursor == null ? "" : cursor))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("cursor회원");
+        member.setAddress(new Address("서울", "강가", "123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook() {
+        Book book = new Book();
+        book.setName("cursor책");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+}
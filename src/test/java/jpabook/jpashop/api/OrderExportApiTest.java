@@ -0,0 +1,154 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /api/v7/orders/export (NDJSON)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderExportApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    OrderApiController orderApiController;
+
+    @Test
+    public void 주문마다_한줄씩_주문상품을_묶어서_쓴다() throws Exception {
+        //given 주문상품 2개인 주문, 1개인 주문
+        Member member = new Member();
+        member.setName("export회원");
+        member.setAddress(new Address("서울", "강가", "123"));
+        em.persist(member);
+        Book jpa = createBook("export JPA");
+        Book spring = createBook("export SPRING");
+        createOrder(member,
+                OrderItem.createOrderItem(jpa, 10000, 1),
+                OrderItem.createOrderItem(spring, 20000, 2));
+        createOrder(member, OrderItem.createOrderItem(jpa, 10000, 3));
+        em.flush();
+        em.clear();
+
+        //when
+        String body = mockMvc.perform(get("/api/v7/orders/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        //then 주문 id는 응답에 없으므로(@JsonIgnore) 회원 이름으로 찾는다. 주문은 id 순서
+        List<JsonNode> orders = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            JsonNode order = objectMapper.readTree(line);
+            if ("export회원".equals(order.get("name").asText())) {
+                orders.add(order);
+            }
+        }
+
+        assertEquals(2, orders.size());
+        assertEquals(50000, orders.get(0).get("totalPrice").asInt());
+        assertEquals(List.of("export JPA", "export SPRING"), itemNames(orders.get(0)));
+        assertEquals(List.of("export JPA"), itemNames(orders.get(1)));
+
+        assertEquals("DTO 프로젝션이므로 영속성 컨텍스트에 엔티티가 없다.",
+                0, em.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void 클라이언트가_연결을_끊으면_더_읽지_않는다() {
+        //given 주문 2개 이상(InitDb), 첫 줄을 보낸 다음 연결이 끊긴다.
+        AtomicInteger lines = new AtomicInteger();
+        AtomicInteger writesAfterDisconnect = new AtomicInteger();
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        if (lines.get() > 0) {
+                            writesAfterDisconnect.incrementAndGet();
+                            throw new IOException("Broken pipe");
+                        }
+                        if (b == '\n') {
+                            lines.incrementAndGet();
+                        }
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+        };
+
+        //when
+        assertThrows(IOException.class, () -> orderApiController.ordersExport(response));
+
+        //then 다음 주문을 쓰다가 실패하면 거기서 멈춘다.
+        assertEquals(1, lines.get());
+        assertEquals(1, writesAfterDisconnect.get());
+    }
+
+    private static List<String> itemNames(JsonNode order) {
+        List<String> names = new ArrayList<>();
+        order.get("orderItems").forEach(item -> names.add(item.get("itemName").asText()));
+        return names;
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+
+    private void createOrder(Member member, OrderItem... orderItems) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, orderItems);
+        em.persist(order);
+    }
+}
@@ -0,0 +1,187 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 3개(primary, replica-a, replica-b)로 라우팅을 검증한다.
+ * DB마다 node 테이블에 자기 이름과 복제 지연(ms)을 넣어두고 어느 DB에서 읽었는지 확인한다.
+ */
+public class ReplicationRoutingDataSourceTest {
+
+    private ReplicationDataSources dataSources;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @Before
+    public void setUp() {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setLagQuery("select lag_millis from node");
+        properties.setMaxLag(Duration.ofSeconds(1));
+        properties.getReplicas().add(replica("replica-a"));
+        properties.getReplicas().add(replica("replica-b"));
+
+        HikariConfig primaryConfig = new HikariConfig();
+        primaryConfig.setJdbcUrl(jdbcUrl("primary"));
+        primaryConfig.setUsername("sa");
+        primaryConfig.setPassword("");
+        primaryConfig.setMaximumPoolSize(4);
+
+        dataSources = new ReplicationDataSources(primaryConfig, properties);
+        initNode(dataSources.getPrimary(), "primary");
+        dataSources.getReplicas().forEach(replica -> initNode(replica.getDataSource(), replica.getName()));
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReplicationRoutingDataSource(dataSources));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        ReplicationContext.clear();
+        dataSources.close();
+    }
+
+    @Test
+    public void 읽기전용은_replica_쓰기는_primary() throws Exception {
+        assertTrue(readNode(readOnly).startsWith("replica-"));
+        assertEquals("primary", readNode(readWrite));
+    }
+
+    @Test
+    public void 트랜잭션_밖은_primary() throws Exception {
+        assertEquals("primary", jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    public void 라운드로빈() throws Exception {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(readNode(readOnly));
+        }
+        assertEquals(nodes.get(0), nodes.get(2));
+        assertEquals(nodes.get(1), nodes.get(3));
+        assertNotEquals("replica를 번갈아 사용해야 한다.", nodes.get(0), nodes.get(1));
+    }
+
+    @Test
+    public void 쓰기후_읽기는_primary() throws Exception {
+        //given 요청(ReplicationContextInterceptor)
+        ReplicationContext.begin();
+
+        //when
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+
+        //then
+        assertEquals("쓰기 후에는 같은 요청의 읽기도 primary에서 해야 한다.", "primary", readNode(readOnly));
+        ReplicationContext.end();
+        assertTrue(readNode(readOnly).startsWith("replica-"));
+    }
+
+    @Test
+    public void 요청_밖의_스레드는_쓰기_트랜잭션이_끝나면_replica로_돌아간다() throws Exception {
+        //given 주문 대기열 처리, 스케줄러처럼 재사용되는 스레드
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            //when
+            String node = worker.submit(() -> {
+                readWrite.executeWithoutResult(status -> {
+                    jdbcTemplate.update("update node set name = name");
+                    //같은 트랜잭션의 중첩 읽기 전용 트랜잭션은 쓰기 트랜잭션의 커넥션을 그대로 쓴다.
+                    assertEquals("primary", readNode(readOnly));
+                });
+                return readNode(readOnly);
+            }).get();
+
+            //then
+            assertTrue(node.startsWith("replica-"));
+            assertFalse("스레드에 표시가 남으면 안된다.", worker.submit(ReplicationContext::hasWritten).get());
+            assertTrue(worker.submit(() -> readNode(readOnly)).get().startsWith("replica-"));
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void 복제지연이_크면_제외() throws Exception {
+        //given
+        new JdbcTemplate(dataSources.getReplicas().get(0).getDataSource()).update("update node set lag_millis = 10000");
+
+        //when
+        dataSources.checkLag();
+
+        //then
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica-b", readNode(readOnly));
+        }
+
+        //모든 replica가 지연되면 primary에서 읽는다.
+        new JdbcTemplate(dataSources.getReplicas().get(1).getDataSource()).update("update node set lag_millis = 10000");
+        dataSources.checkLag();
+        assertEquals("primary", readNode(readOnly));
+    }
+
+    @Test
+    public void 커넥션이_적은_replica_선택() throws Exception {
+        //given
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setSelection(ReplicationProperties.Selection.LEAST_CONNECTIONS);
+        properties.getReplicas().add(replica("replica-a"));
+        properties.getReplicas().add(replica("replica-b"));
+        HikariConfig primaryConfig = new HikariConfig();
+        primaryConfig.setJdbcUrl(jdbcUrl("primary"));
+        primaryConfig.setUsername("sa");
+        primaryConfig.setPassword("");
+
+        try (ReplicationDataSources leastConnections = new ReplicationDataSources(primaryConfig, properties);
+             Connection busy = leastConnections.getReplicas().get(0).getDataSource().getConnection()) {
+            leastConnections.getReplicas().get(1).getDataSource().getConnection().close(); //풀 생성
+
+            //when, then
+            assertEquals("replica-b", leastConnections.selectReplica().getName());
+        }
+    }
+
+    private String readNode(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    private static ReplicationProperties.Replica replica(String name) {
+        ReplicationProperties.Replica replica = new ReplicationProperties.Replica();
+        replica.setName(name);
+        replica.setJdbcUrl(jdbcUrl(name));
+        replica.setMaximumPoolSize(4);
+        return replica;
+    }
+
+    private static String jdbcUrl(String name) {
+        return "jdbc:h2:mem:replication-" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static void initNode(DataSource dataSource, String name) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists node");
+        jdbcTemplate.execute("create table node (name varchar(50), lag_millis bigint)");
+        jdbcTemplate.update("insert into node values (?, 0)", name);
+    }
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop.config;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 한 JVM의 컨텍스트(SessionFactory)마다 2차 캐시를 따로 쓰는지 확인
+ * DB가 다르면 같은 id의 상품도 다른 상품이다.
+ */
+public class SecondLevelCacheConfigTest {
+
+    @Test
+    public void 다른_DB의_같은_id_상품을_캐시에서_읽지_않는다() {
+        try (ConfigurableApplicationContext a = start("second-level-cache-a");
+             ConfigurableApplicationContext b = start("second-level-cache-b")) {
+            //given 두 DB에 같은 id로 재고가 다른 상품을 저장하고 캐시에 올린다.
+            Long idA = createBook(a, 5);
+            Long idB = createBook(b, 7);
+            assertEquals("두 DB의 시퀀스가 같은 id를 준다.", idA, idB);
+
+            //when
+            int stockA = a.getBean(ItemService.class).findItemOne(idA).getStockQuantity();
+            int stockB = b.getBean(ItemService.class).findItemOne(idB).getStockQuantity();
+
+            //then
+            assertEquals(5, stockA);
+            assertEquals(7, stockB);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String db) {
+        return new SpringApplication(JpashopApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.hikari.jdbc-url=jdbc:h2:mem:" + db);
+    }
+
+    private static Long createBook(ConfigurableApplicationContext context, int stockQuantity) {
+        Book book = new Book();
+        book.setName("캐시 jpa");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        context.getBean(ItemService.class).saveItem(book);
+        context.getBean(ItemService.class).findItemOne(book.getId()); //캐시에 올린다.
+        return book.getId();
+    }
+}
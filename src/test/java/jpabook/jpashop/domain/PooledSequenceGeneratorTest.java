@@ -0,0 +1,88 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 주문(주문, 주문상품, 배송)을 저장할 때 시퀀스 호출 수
+ * 시퀀스는 롤백되지 않으므로 증가값마다 DB를 분리한다.(처리량 비교는 src/jmh의 OrderSaveBenchmark)
+ */
+@RunWith(Enclosed.class)
+public class PooledSequenceGeneratorTest {
+
+    private static final int ORDERS = 100;
+
+    @Transactional
+    public abstract static class SequenceCalls {
+
+        @Autowired
+        EntityManager em;
+        @Autowired
+        OrderRepository orderRepository;
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        /**
+         * 주문 ORDERS 개를 저장하는 동안 호출된 시퀀스 수 (시퀀스마다 증가량 / increment)
+         */
+        protected long saveOrders() {
+            Member member = new Member();
+            member.setName("시퀀스회원");
+            em.persist(member);
+            Book book = new Book();
+            book.setName("시퀀스 jpa");
+            book.setStockQuantity(ORDERS);
+            em.persist(book);
+
+            long before = sequenceCalls();
+            for (int i = 0; i < ORDERS; i++) {
+                OrderItem orderItem = OrderItem.createOrderItem(book, book.getPrice(), 1);
+                orderRepository.save(Order.createOrder(member, new Delivery(), orderItem));
+            }
+            em.flush();
+            return sequenceCalls() - before;
+        }
+
+        private long sequenceCalls() {
+            Long calls = jdbcTemplate.queryForObject(
+                    "select sum(current_value / increment) from information_schema.sequences", Long.class);
+            return calls == null ? 0 : calls;
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = {
+            "spring.jpa.properties.jpashop.id.increment_size=1",
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:single-step-sequence"
+    })
+    public static class SingleStepSequence extends SequenceCalls {
+        @Test
+        public void 주문마다_시퀀스를_3번_호출한다() {
+            assertEquals(3L * ORDERS, saveOrders());
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:pooled-sequence")
+    public static class PooledSequence extends SequenceCalls {
+        @Test
+        public void 시퀀스는_50개마다_한번만_호출한다() {
+            long calls = saveOrders();
+            //엔티티 3개 * (100 / 50), 이미 할당받은 구간이 남아 있으면 더 적다.
+            assertTrue("sequence calls = " + calls, calls <= 3L * (ORDERS / 50));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.domain.Member;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class HibernateStatisticsEndpointTest {
+
+    @Autowired
+    HibernateStatisticsEndpoint endpoint;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    EntityManager em;
+
+    @After
+    public void tearDown() {
+        endpoint.enable(false); //다른 테스트에 영향이 없도록
+        endpoint.clear();
+    }
+
+    @Test
+    public void 기본은_꺼져있다() throws Exception {
+        assertEquals(false, endpoint.statistics(null, null).get("enabled"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 엔티티_쿼리_통계() throws Exception {
+        //given
+        endpoint.enable(true);
+        Member member = new Member();
+        member.setName("통계회원");
+        em.persist(member);
+        em.flush();
+        em.clear();
+        em.getEntityManagerFactory().getCache().evict(Member.class); //2차 캐시가 아니라 DB에서 읽도록
+
+        //when
+        em.find(Member.class, member.getId());
+        em.createQuery("select m from Member m where m.name = :name", Member.class)
+                .setParameter("name", "통계회원")
+                .getResultList();
+
+        //then
+        Map<String, Object> result = endpoint.statistics("total", 10);
+        Map<String, Object> memberStats = (Map<String, Object>) ((Map<String, Object>) result.get("entities")).get("Member");
+        assertEquals(1L, memberStats.get("inserts"));
+        assertTrue((Long) memberStats.get("loads") >= 1);
+
+        List<Map<String, Object>> queries = (List<Map<String, Object>>) result.get("queries");
+        assertTrue(queries.stream().anyMatch(q -> q.get("query").toString().contains("where m.name = :name")));
+
+        FunctionCounter loads = meterRegistry.find("jpashop.hibernate.entity.loads").tag("entity", "Member").functionCounter();
+        assertNotNull(loads);
+        assertTrue(loads.count() >= 1);
+    }
+}
@@ -0,0 +1,94 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.SqlBudgetExceededException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 요청당 sql 집계 (헤더, 엔드포인트별 지표, 예산)
+ * sql 수가 데이터에 따라 달라지지 않도록 InitDb 주문(2건, 주문마다 상품 2개)만 있는 DB를 쓴다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:sql-statistics",
+        "jpashop.sql.budgets.[/api/v2/simple-orders]=1"
+})
+@AutoConfigureMockMvc
+public class SqlStatisticsFilterTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Before
+    public void setUp() {
+        emf.getCache().evictAll(); //2차 캐시에 따라 회원, 상품 조회 sql이 빠지지 않도록
+    }
+
+    @Test
+    public void 지연로딩_엔드포인트의_sql_수() throws Exception {
+        //given
+        DistributionSummary before = statements("/api/v2/orders");
+        long count = before == null ? 0 : before.count();
+        double total = before == null ? 0 : before.totalAmount();
+
+        //when
+        MvcResult result = mockMvc.perform(get("/api/v2/orders")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                //주문 1 + 지연 로딩(batch fetch) 회원 1, 배송 1, 주문상품 1, 상품 1
+                .andExpect(header().string("X-Sql-Count", "5"))
+                .andExpect(header().exists("X-Sql-Time-Ms"));
+
+        //then 엔드포인트(url 패턴)별로 기록된다.
+        DistributionSummary after = statements("/api/v2/orders");
+        assertEquals(count + 1, after.count());
+        assertEquals(total + 5, after.totalAmount(), 0);
+        assertNotNull(meterRegistry.find("http.server.requests.sql.time").tag("uri", "/api/v2/orders").timer());
+        assertNotNull(meterRegistry.find("http.server.requests.sql.rows").tag("uri", "/api/v2/orders").summary());
+    }
+
+    @Test
+    public void 페치조인은_sql_한번() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v3/simple-orders")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Sql-Count", "1"));
+    }
+
+    @Test
+    public void 예산을_넘으면_실패() throws Exception {
+        //V2는 회원, 배송 지연 로딩으로 sql이 3번, 예산은 1
+        MvcResult result = mockMvc.perform(get("/api/v2/simple-orders")).andReturn();
+        try {
+            mockMvc.perform(asyncDispatch(result));
+            fail("sql 예산을 넘으면 예외가 발생한다.");
+        } catch (SqlBudgetExceededException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("/api/v2/simple-orders: 3개 실행 (예산 1개)"));
+        }
+    }
+
+    private DistributionSummary statements(String uri) {
+        return meterRegistry.find("http.server.requests.sql.statements").tag("uri", uri).summary();
+    }
+}
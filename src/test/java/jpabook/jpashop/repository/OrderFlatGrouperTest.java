@@ -0,0 +1,97 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderFlatGrouper;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public class OrderFlatGrouperTest {
+
+    //주문 1: 2개, 주문 2: 1개, 주문 3: 3개, 주문 4: 1개
+    private final List<OrderFlatDto> rows = Arrays.asList(
+            row(1L, "A"), row(1L, "B"),
+            row(2L, "C"),
+            row(3L, "D"), row(3L, "E"), row(3L, "F"),
+            row(4L, "G"));
+
+    @Test
+    public void 주문단위_순서유지() throws Exception {
+        List<OrderQueryDto> result = group(new ArrayList<>(), 0, Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), result.stream().map(OrderQueryDto::getOrderId).collect(toList()));
+        assertEquals(Arrays.asList("D", "E", "F"), itemNames(result.get(2)));
+    }
+
+    @Test
+    public void 주문기준_offset_limit() throws Exception {
+        List<OrderQueryDto> result = group(new ArrayList<>(), 1, 2);
+
+        assertEquals(Arrays.asList(2L, 3L), result.stream().map(OrderQueryDto::getOrderId).collect(toList()));
+        assertEquals("limit을 채운 주문도 row가 잘리지 않아야 한다.", 3, result.get(1).getOrderItems().size());
+    }
+
+    @Test
+    public void limit을_채우면_더_읽지_않는다() throws Exception {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatGrouper grouper = new OrderFlatGrouper(0, 1, result::add);
+
+        assertTrue(grouper.add(rows.get(0)));
+        assertTrue(grouper.add(rows.get(1)));
+        assertFalse("두번째 주문이 시작되면 더 읽을 필요가 없다.", grouper.add(rows.get(2)));
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void 주문이_끝나면_바로_넘긴다() throws Exception {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatGrouper grouper = new OrderFlatGrouper(result::add);
+
+        grouper.add(rows.get(0));
+        grouper.add(rows.get(1));
+        assertEquals("다음 주문 row 전에는 넘기지 않는다.", 0, result.size());
+        grouper.add(rows.get(2));
+        assertEquals(1, result.size());
+        grouper.finish();
+        assertEquals(2, result.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 정렬되지_않은_row는_예외() throws Exception {
+        OrderFlatGrouper grouper = new OrderFlatGrouper(o -> { });
+        grouper.add(row(2L, "A"));
+
+        grouper.add(row(1L, "B")); //예외가 발생해야 한다.
+
+        fail("정렬되지 않은 row는 예외가 발생해야 한다.");
+    }
+
+    private List<OrderQueryDto> group(List<OrderQueryDto> result, long offset, long limit) {
+        OrderFlatGrouper grouper = new OrderFlatGrouper(offset, limit, result::add);
+        for (OrderFlatDto row : rows) {
+            if (!grouper.add(row)) {
+                return result;
+            }
+        }
+        grouper.finish();
+        return result;
+    }
+
+    private static List<String> itemNames(OrderQueryDto order) {
+        return order.getOrderItems().stream().map(oi -> oi.getItemName()).collect(toList());
+    }
+
+    private static OrderFlatDto row(Long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "회원" + orderId, LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "강가", "123-123"), 10000, 1, itemName, 10000, 1);
+    }
+}
@@ -0,0 +1,121 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryAssembler;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * 병렬 조회 결과가 V5(findAllByDto_optimization)와 같은지 검증
+ * 병렬 조회는 트랜잭션 밖에서만 호출할 수 있으므로 데이터를 커밋하고 DB를 분리한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.query.in-chunk-size=3", //chunk가 여러개로 나뉘도록 작게
+        "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:order-query-assembler"
+})
+public class OrderQueryAssemblerTest {
+
+    private static final int ORDERS = 10;
+
+    @Autowired
+    OrderQueryAssembler orderQueryAssembler;
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Book book1 = createBook("병렬1");
+            Book book2 = createBook("병렬2");
+            for (int i = 0; i < ORDERS; i++) {
+                Member member = new Member();
+                member.setName("병렬회원-" + System.nanoTime() + "-" + i);
+                member.setAddress(new Address("서울", "강가", "123-123"));
+                em.persist(member);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                OrderItem[] orderItems = i % 2 == 0
+                        ? new OrderItem[]{OrderItem.createOrderItem(book1, 10000, 1)}
+                        : new OrderItem[]{OrderItem.createOrderItem(book1, 10000, 1), OrderItem.createOrderItem(book2, 20000, 2)};
+                em.persist(Order.createOrder(member, delivery, orderItems));
+            }
+        });
+    }
+
+    @Test
+    public void 병렬조회_결과가_V5와_같다() throws Exception {
+        //given
+        List<OrderQueryDto> expected = transactionTemplate.execute(status -> orderQueryRepository.findAllByDto_optimization());
+        expected.sort(Comparator.comparing(OrderQueryDto::getOrderId));
+
+        //when
+        List<OrderQueryDto> actual = orderQueryAssembler.findAllByDto_parallel(0, Integer.MAX_VALUE);
+
+        //then
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    @Test
+    public void 페이징() throws Exception {
+        List<OrderQueryDto> all = orderQueryAssembler.findAllByDto_parallel(0, Integer.MAX_VALUE);
+
+        List<OrderQueryDto> page = orderQueryAssembler.findAllByDto_parallel(2, 5);
+
+        assertEquals(describe(all.subList(2, 7)), describe(page));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 트랜잭션_안에서_호출하면_예외() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> orderQueryAssembler.findAllByDto_parallel(0, 10));
+
+        fail("트랜잭션 안에서 호출하면 예외가 발생해야 한다.");
+    }
+
+    private static List<String> describe(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .map(o -> o.getOrderId() + ":" + o.getName() + ":" + o.getOrderItems().stream()
+                        .map(OrderItemQueryDto::toString)
+                        .sorted() //V5는 주문상품 순서를 보장하지 않는다.
+                        .collect(toList()))
+                .collect(toList());
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(1000);
+        em.persist(book);
+        return book;
+    }
+}
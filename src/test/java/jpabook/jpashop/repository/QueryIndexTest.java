@@ -0,0 +1,484 @@
+package jpabook.jpashop.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.search.OrderSearchRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 리포지토리가 실행하는 쿼리마다 H2 EXPLAIN으로 실행 계획을 확인한다.
+ *
+ * 모든 조회 쿼리는 인덱스로 찾아야 한다.(tableScan, 조건 없이 인덱스 전체를 읽는 것 모두 full scan)
+ * 조건 없는 전체 목록처럼 full scan이 맞는 쿼리는 테이블과 이유를 fullScan()으로 하나씩 허용한다.
+ * keyset 첫 페이지처럼 조건 없이 인덱스 앞부분만 읽는 쿼리는 assertIndexSorted()로 인덱스 순서와 limit을 확인한다.
+ * 리포지토리에 메서드가 추가되면 EXPLAINED에 없으므로 모든_리포지토리_메서드를_확인한다 테스트가 실패한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:query-index")
+@Transactional
+public class QueryIndexTest {
+
+    /**
+     * 실행 계획에서 테이블을 읽는 방법 ("PUBLIC"."ORDERS" "O" 다음 주석의 PUBLIC.IDX_ORDERS_STATUS: STATUS = 'ORDER')
+     * 서브쿼리 안은 /++ ++/ 주석이다. tableScan이거나 조건 없이 인덱스 전체를 읽으면 full scan이다.
+     */
+    private static final Pattern TABLE_ACCESS = Pattern.compile(
+            "(?:\"PUBLIC\"\\.\"|PUBLIC\\.)(\\w+)\"?(?:\\s+\"?\\w+\"?)?\\s*/(?:\\*|\\+\\+) PUBLIC\\.(\\w+)(\\.tableScan)?(:| (?:\\*|\\+\\+)/)");
+
+    /**
+     * 실행 계획을 확인하는 리포지토리 메서드 (쓰기만 하는 메서드는 이유와 함께 제외)
+     */
+    private static final Map<Class<?>, Set<String>> EXPLAINED = Map.of(
+            MemberRepository.class, Set.of("findAll", "findByName", "findByIdGreaterThanOrderByIdAsc", "findSummariesAfter",
+                    "findSummariesByNameLike", "existsByName", "findNamesIn", "streamAllNames"),
+            MemberRepositoryOld.class, Set.of("findOne", "findAll", "findByName", "findAllByIds"),
+            ItemRepository.class, Set.of("findOne", "findAllByIds", "findAll", "decreaseStock", "addStock"),
+            OrderRepository.class, Set.of("findOne", "findAllByString", "findAll", "findAllWithMemberDelivery", "findAllWithItem"),
+            OrderSearchRepository.class, Set.of("search"),
+            OrderQueryRepository.class, Set.of("findOrderQueryDtos", "findAllByDto_optimization", "findOrderIds", "findOrders",
+                    "findOrderItems", "findAllByDto_flat", "streamAllByDto_flat"),
+            OrderSimpleRepository.class, Set.of("findOrdersDto"),
+            CategoryRepository.class, Set.of("save", "findOne", "findForUpdate", "findSubtreeForUpdate", "findAllForTree", "isInSubtree", "moveSubtree", "findItemsInSubtree"),
+            DeliveryOutboxRepository.class, Set.of("findByPublishedAtIsNullOrderByIdAsc", "findByOrderIdOrderByIdAsc"),
+            StockReservationRepository.class, Set.of("findForUpdateByItemId", "findItemIds"));
+
+    private static final Map<String, String> NOT_EXPLAINED = Map.of(
+            "MemberRepositoryOld.save", "insert만 실행한다.",
+            "ItemRepository.save", "insert, merge(pk 조회)만 실행한다.",
+            "OrderRepository.save", "insert만 실행한다.",
+            "OrderSearchRepository.registerQueries", "시작할 때 named query를 등록한다.(search에서 모든 조합을 확인)");
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    /**
+     * 값이 채워진 sql을 모은다.
+     */
+    static class SqlCapture extends SimpleJdbcEventListener {
+        private volatile boolean capturing;
+        private final List<String> sqls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            if (capturing) {
+                sqls.add(statementInformation.getSqlWithValues());
+            }
+        }
+
+        void start() {
+            sqls.clear();
+            capturing = true;
+        }
+
+        List<String> stop() {
+            capturing = false;
+            return new ArrayList<>(sqls);
+        }
+    }
+
+    /**
+     * full scan을 허용하는 테이블과 이유
+     */
+    static class FullScan {
+        final String table;
+        final String reason;
+
+        FullScan(String table, String reason) {
+            this.table = table;
+            this.reason = reason;
+        }
+    }
+
+    private static FullScan fullScan(String table, String reason) {
+        return new FullScan(table.toUpperCase(), reason);
+    }
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    SqlCapture sqlCapture;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberRepositoryOld memberRepositoryOld;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+    @Autowired
+    OrderSimpleRepository orderSimpleRepository;
+    @Autowired
+    OrderSearchRepository orderSearchRepository;
+    @Autowired
+    CategoryRepository categoryRepository;
+    @Autowired
+    DeliveryOutboxRepository deliveryOutboxRepository;
+    @Autowired
+    StockReservationRepository stockReservationRepository;
+
+    Book book1;
+    Book book2;
+    Member member;
+    Order order;
+
+    @Before
+    public void setUp() {
+        book1 = createBook("인덱스1", 10000);
+        book2 = createBook("인덱스2", 20000);
+        for (int i = 0; i < 50; i++) {
+            member = new Member();
+            member.setName("인덱스회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, book1.getPrice(), 1),
+                    OrderItem.createOrderItem(book2, book2.getPrice(), 1));
+            em.persist(order);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void 모든_리포지토리_메서드를_확인한다() throws Exception {
+        List<String> missing = new ArrayList<>();
+        EXPLAINED.forEach((repository, explained) -> {
+            for (Method method : repository.getDeclaredMethods()) {
+                String name = repository.getSimpleName() + "." + method.getName();
+                if (Modifier.isPrivate(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) || method.isSynthetic()
+                        || explained.contains(method.getName()) || NOT_EXPLAINED.containsKey(name)) {
+                    continue;
+                }
+                missing.add(name);
+            }
+        });
+        assertEquals("실행 계획을 확인하지 않은 리포지토리 메서드", List.of(), missing);
+    }
+
+    @Test
+    public void 회원_조회() throws Exception {
+        assertIndexed(() -> {
+            memberRepository.findByName("인덱스회원7");
+            memberRepository.existsByName("인덱스회원7");
+            memberRepository.findByIdGreaterThanOrderByIdAsc(member.getId() - 10, PageRequest.of(0, 5));
+            memberRepository.findSummariesAfter(member.getId() - 10, PageRequest.of(0, 5));
+            memberRepository.findSummariesByNameLike("인덱스회원1%", PageRequest.of(0, 5));
+            memberRepository.findNamesIn(List.of("인덱스회원1", "인덱스회원2"));
+            memberRepositoryOld.findOne(member.getId());
+            memberRepositoryOld.findByName("인덱스회원7");
+            memberRepositoryOld.findAllByIds(Arrays.asList(1L, 2L, 3L));
+        });
+    }
+
+    @Test
+    public void 회원_전체() throws Exception {
+        FullScan allMembers = fullScan("member", "전체 회원 목록, 조건이 없으므로 모든 row를 읽는다.");
+        assertIndexed(() -> {
+            memberRepository.findAll();
+            memberRepositoryOld.findAll();
+            try (Stream<String> names = memberRepository.streamAllNames()) {
+                names.forEach(name -> { });
+            }
+        }, allMembers);
+    }
+
+    @Test
+    public void 상품_조회와_재고_변경() throws Exception {
+        assertIndexed(() -> {
+            itemRepository.findOne(book1.getId());
+            itemRepository.findAllByIds(Arrays.asList(book1.getId(), book2.getId()));
+            itemRepository.decreaseStock(book1.getId(), 1);
+            itemRepository.addStock(book1.getId(), 1);
+        });
+        assertIndexed(() -> itemRepository.findAll(),
+                fullScan("item", "전체 상품 목록, 조건이 없으므로 모든 row를 읽는다."));
+    }
+
+    @Test
+    public void 주문_검색_모든_조합() throws Exception {
+        //named query 4개 (상태 유무 x 회원명 유무)
+        for (OrderStatus status : Arrays.asList(null, OrderStatus.ORDER)) {
+            for (String memberName : Arrays.asList(null, "인덱스회원1")) {
+                OrderSearch orderSearch = new OrderSearch();
+                orderSearch.setOrderStatus(status);
+                orderSearch.setMemberName(memberName);
+                assertIndexed(() -> orderSearchRepository.search(orderSearch), orderSearchFullScans(orderSearch));
+            }
+        }
+    }
+
+    @Test
+    public void 주문_검색_jpql_querydsl_모든_조합() throws Exception {
+        for (OrderStatus status : Arrays.asList(null, OrderStatus.ORDER)) {
+            for (String memberName : Arrays.asList(null, "인덱스회원1")) {
+                OrderSearch orderSearch = new OrderSearch();
+                orderSearch.setOrderStatus(status);
+                orderSearch.setMemberName(memberName);
+                assertIndexed(() -> {
+                    orderRepository.findAllByString(orderSearch);
+                    orderRepository.findAll(orderSearch);
+                }, orderSearchFullScans(orderSearch));
+            }
+        }
+    }
+
+    /**
+     * 회원명이 있으면 member.name 인덱스에서 시작한다.
+     * 상태만 있으면 주문 상태 인덱스(idx_orders_status)로 찾는다.
+     * 조건이 없으면 최신 주문 1000건까지 orders를 읽는다.
+     */
+    private static FullScan[] orderSearchFullScans(OrderSearch orderSearch) {
+        if (orderSearch.getMemberName() != null || orderSearch.getOrderStatus() != null) {
+            return new FullScan[0];
+        }
+        return new FullScan[]{fullScan("orders", "검색 조건이 없으면 전체 주문 목록(최대 1000건)이다.")};
+    }
+
+    @Test
+    public void 주문_단건() throws Exception {
+        assertIndexed(() -> orderRepository.findOne(order.getId()));
+    }
+
+    @Test
+    public void 주문_keyset_페이징() throws Exception {
+        List<Order> firstPage = orderRepository.findAllWithMemberDelivery((OrderCursor) null, 10);
+        Order last = firstPage.get(firstPage.size() - 1);
+        OrderCursor cursor = new OrderCursor(last.getOrderDate(), last.getId());
+        em.clear();
+
+        assertIndexed(() -> orderRepository.findAllWithMemberDelivery(cursor, 10)
+                .forEach(o -> o.getOrderItems().forEach(oi -> oi.getItem().getName())));
+    }
+
+    @Test
+    public void 주문_keyset_첫_페이지() throws Exception {
+        assertIndexSorted(() -> orderRepository.findAllWithMemberDelivery((OrderCursor) null, 10),
+                "orders", "idx_orders_order_date_id");
+    }
+
+    @Test
+    public void 주문_목록() throws Exception {
+        FullScan allOrders = fullScan("orders", "전체 주문 목록, 회원/배송/주문상품은 인덱스로 조인한다.");
+        assertIndexed(() -> {
+            orderRepository.findAllWithMemberDelivery(0, 10)
+                    .forEach(o -> o.getOrderItems().forEach(oi -> oi.getItem().getName()));
+            orderRepository.findAllWithMemberDelivery();
+        }, allOrders);
+        assertIndexed(() -> orderRepository.findAllWithItem(),
+                fullScan("order_item", "전체 주문의 주문상품을 모두 읽는다.(H2는 주문상품부터 읽고 주문, 회원, 배송, 상품은 pk로 조인한다.)"));
+    }
+
+    @Test
+    public void 주문_DTO_조회() throws Exception {
+        FullScan allOrders = fullScan("orders", "전체 주문 목록, 주문상품은 order_id 인덱스로 찾는다.");
+        assertIndexed(() -> {
+            orderQueryRepository.findOrderQueryDtos();
+            orderQueryRepository.findAllByDto_optimization();
+            orderSimpleRepository.findOrdersDto();
+        }, allOrders);
+        assertIndexed(() -> {
+            orderQueryRepository.findAllByDto_flat();
+            orderQueryRepository.findAllByDto_flat(0, 10);
+            orderQueryRepository.streamAllByDto_flat(100, o -> { });
+        }, fullScan("item", "전체 주문 x 주문상품 flat 조인, H2는 가장 작은 상품 테이블부터 읽고 나머지는 인덱스로 조인한다."));
+
+        //OrderQueryAssembler(병렬 조회)용, 트랜잭션 밖에서만 호출할 수 있으므로 메서드를 직접 실행한다.
+        OrderQueryRepository target = AopTestUtils.getTargetObject(orderQueryRepository);
+        List<Long> orderIds = List.of(order.getId());
+        assertIndexed(() -> ReflectionTestUtils.invokeMethod(target, "findOrderIds", 0, 10),
+                fullScan("orders", "주문 id 목록(offset 페이징), pk 순서로 읽는다."));
+        assertIndexed(() -> {
+            ReflectionTestUtils.invokeMethod(target, "findOrders", orderIds);
+            ReflectionTestUtils.invokeMethod(target, "findOrderItems", orderIds);
+        });
+    }
+
+    @Test
+    public void 카테고리() throws Exception {
+        Category parent = new Category();
+        parent.setName("인덱스 상위");
+        categoryRepository.save(parent);
+        Category child = new Category();
+        child.setName("인덱스 하위");
+        child.setParent(parent);
+        categoryRepository.save(child);
+        Category other = new Category();
+        other.setName("인덱스 다른 상위");
+        categoryRepository.save(other);
+
+        assertIndexed(() -> {
+            Category grandChild = new Category();
+            grandChild.setName("인덱스 손자");
+            grandChild.setParent(child);
+            categoryRepository.save(grandChild);
+            categoryRepository.findOne(child.getId());
+            categoryRepository.findForUpdate(other.getId());
+            categoryRepository.findSubtreeForUpdate(child.getId());
+            categoryRepository.isInSubtree(parent.getId(), child.getId());
+            categoryRepository.moveSubtree(child, other);
+        });
+        assertIndexed(() -> categoryRepository.findItemsInSubtree(parent.getId(), 0, 10),
+                fullScan("item", "상품 id 순 페이징, pk 순서로 읽으면서 exists(closure, category_item 인덱스)로 거르고 limit만큼 찾으면 멈춘다."));
+        assertIndexed(() -> categoryRepository.findAllForTree(),
+                fullScan("category", "트리 캐시를 만들기 위해 전체 카테고리를 한번에 읽는다."));
+    }
+
+    @Test
+    public void 배송_outbox() throws Exception {
+        assertIndexed(() -> {
+            deliveryOutboxRepository.findByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, 10));
+            deliveryOutboxRepository.findByOrderIdOrderByIdAsc(order.getId());
+        });
+    }
+
+    @Test
+    public void 재고_예약() throws Exception {
+        assertIndexed(() -> stockReservationRepository.findForUpdateByItemId(book1.getId()));
+        assertIndexed(() -> stockReservationRepository.findItemIds(),
+                fullScan("stock_reservation", "반영하지 않은 예약 전체(시작할 때 한번), 반영 후 삭제하므로 작다."));
+    }
+
+    /**
+     * 실행된 쿼리가 allowed에 없는 테이블을 full scan 하면 실패
+     */
+    private void assertIndexed(Runnable queries, FullScan... allowed) {
+        sqlCapture.start();
+        queries.run();
+        List<String> sqls = sqlCapture.stop();
+
+        assertFalse("실행된 쿼리가 없습니다.", sqls.isEmpty());
+        Set<String> allowedTables = Arrays.stream(allowed).map(fullScan -> fullScan.table).collect(Collectors.toSet());
+        for (String sql : sqls) {
+            if (!isQuery(sql)) {
+                continue;
+            }
+            String plan = explain(sql);
+            for (String table : fullScannedTables(plan)) {
+                assertTrue(table + " 테이블을 full scan 합니다.\n" + plan, allowedTables.contains(table));
+            }
+        }
+    }
+
+    /**
+     * 실행된 쿼리가 table을 index 순서대로(정렬 없이) limit 만큼만 읽는지 확인
+     * 조건이 없으므로 assertIndexed()에서는 full scan으로 보이지만 인덱스 앞부분만 읽고 멈춘다.
+     * 나머지 테이블은 assertIndexed()와 같이 인덱스로 찾아야 한다.
+     */
+    private void assertIndexSorted(Runnable queries, String table, String index) {
+        sqlCapture.start();
+        queries.run();
+        List<String> sqls = sqlCapture.stop();
+
+        assertFalse("실행된 쿼리가 없습니다.", sqls.isEmpty());
+        for (String sql : sqls) {
+            if (!isQuery(sql)) {
+                continue;
+            }
+            String plan = explain(sql);
+            assertEquals(table + " 테이블을 " + index + " 인덱스로 읽지 않습니다.\n" + plan,
+                    index.toUpperCase(), accessIndexes(plan).get(table.toUpperCase()));
+            assertTrue("인덱스 순서로 읽지 않고 정렬합니다.\n" + plan, plan.contains("/* index sorted */"));
+            assertTrue("limit 없이 인덱스 전체를 읽습니다.\n" + plan, plan.contains("FETCH FIRST"));
+
+            List<String> fullScanned = fullScannedTables(plan);
+            fullScanned.remove(table.toUpperCase());
+            assertEquals("full scan 하는 테이블\n" + plan, List.of(), fullScanned);
+        }
+    }
+
+    /**
+     * 조회, 변경 조건이 있는 sql (insert ... values, 시퀀스 호출은 제외)
+     */
+    private static boolean isQuery(String sql) {
+        String lower = sql.trim().toLowerCase();
+        return lower.startsWith("select") || lower.startsWith("update") || lower.startsWith("delete")
+                || (lower.startsWith("insert") && lower.contains(" select "));
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(em.createNativeQuery("explain " + sql).getSingleResult());
+    }
+
+    private static List<String> fullScannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            boolean tableScan = matcher.group(3) != null;
+            boolean withoutCondition = !matcher.group(4).equals(":");
+            if (tableScan || withoutCondition) {
+                tables.add(matcher.group(1));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * 테이블별로 읽는 인덱스 (tableScan이면 null)
+     */
+    private static Map<String, String> accessIndexes(String plan) {
+        Map<String, String> indexes = new HashMap<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            indexes.put(matcher.group(1), matcher.group(3) == null ? matcher.group(2) : null);
+        }
+        return indexes;
+    }
+
+    private Book createBook(String name, int price) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(1000);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,163 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.CategoryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * 트리 캐시는 커밋된 후에 무효화되므로 트랜잭션을 롤백하지 않고 DB를 분리한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:category")
+public class CategoryServiceTest {
+
+    @Autowired
+    CategoryService categoryService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Test
+    public void 하위_카테고리_상품을_한번에_조회() throws Exception {
+        //given 도서 > IT > JPA, 도서 > 소설
+        Long books = categoryService.create("도서", null);
+        Long it = categoryService.create("IT", books);
+        Long jpa = categoryService.create("JPA", it);
+        Long novel = categoryService.create("소설", books);
+
+        Long jpaBook = createBook("JPA 책", jpa);
+        Long novelBook = createBook("소설 책", novel);
+        categoryService.addItem(it, jpaBook); //여러 하위 카테고리에 있어도 한번만
+
+        //when, then
+        assertEquals(List.of(jpaBook, novelBook), itemIds(books, 0, 10));
+        assertEquals(List.of(jpaBook), itemIds(it, 0, 10));
+        assertEquals(List.of(novelBook), itemIds(books, 1, 10));
+    }
+
+    @Test
+    public void 이동하면_하위_트리가_같이_이동() throws Exception {
+        //given 전자 > 컴퓨터 > 노트북, 가전
+        Long electronics = categoryService.create("전자", null);
+        Long computer = categoryService.create("컴퓨터", electronics);
+        Long laptop = categoryService.create("노트북", computer);
+        Long appliance = categoryService.create("가전", null);
+        Long laptopItem = createBook("노트북 책", laptop);
+
+        //when
+        categoryService.move(computer, appliance);
+
+        //then
+        assertTrue(itemIds(electronics, 0, 10).isEmpty());
+        assertEquals(List.of(laptopItem), itemIds(appliance, 0, 10));
+
+        CategoryTree tree = categoryService.getTree();
+        assertEquals(appliance, tree.getNode(computer).getParentId());
+        assertEquals(laptop, tree.getNode(computer).getChildren().get(0).getId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 하위_카테고리_아래로_이동하면_예외() throws Exception {
+        Long parent = categoryService.create("부모", null);
+        Long child = categoryService.create("자식", parent);
+
+        categoryService.move(parent, child); //예외가 발생해야 한다.
+
+        fail("하위 카테고리 아래로 이동하면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 트리는_캐시되고_구조가_바뀌면_다시_만든다() throws Exception {
+        CategoryTree before = categoryService.getTree();
+        assertSame("구조가 바뀌지 않으면 같은 트리", before, categoryService.getTree());
+
+        Long root = categoryService.create("캐시", null);
+
+        CategoryTree after = categoryService.getTree();
+        assertNotSame(before, after);
+        assertNotNull(after.getNode(root));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 없는_상품을_추가하면_예외() throws Exception {
+        Long category = categoryService.create("없는 상품", null);
+
+        categoryService.addItem(category, -1L); //예외가 발생해야 한다.
+
+        fail("없는 상품을 추가하면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 이동과_동시에_등록해도_조상_경로가_맞다() throws Exception {
+        //given 왼쪽, 오른쪽 > 이동 > 잎
+        Long left = categoryService.create("왼쪽", null);
+        Long right = categoryService.create("오른쪽", null);
+        Long moving = categoryService.create("이동", right);
+        Long leaf = categoryService.create("잎", moving);
+
+        //when 이동을 반복하는 동안 잎 아래에 등록
+        int count = 30;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> mover = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < count; i++) {
+                categoryService.move(moving, i % 2 == 0 ? left : right);
+            }
+            return null;
+        });
+        Future<List<Long>> creator = executor.submit(() -> {
+            start.await();
+            List<Long> created = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                created.add(categoryService.create("동시" + i, leaf));
+            }
+            return created;
+        });
+        start.countDown();
+        mover.get(30, TimeUnit.SECONDS);
+        List<Long> created = creator.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then 마지막 이동(count가 짝수이면 오른쪽) 기준으로 조상 경로가 있어야 하고, 이전 위치의 경로는 남지 않는다.
+        Long finalParent = (count - 1) % 2 == 0 ? left : right;
+        Long otherRoot = finalParent.equals(left) ? right : left;
+        for (Long id : created) {
+            assertTrue(categoryRepository.isInSubtree(finalParent, id));
+            assertTrue(categoryRepository.isInSubtree(moving, id));
+            assertFalse("이전 위치의 조상 경로가 남으면 안된다. categoryId = " + id, categoryRepository.isInSubtree(otherRoot, id));
+        }
+    }
+
+    private Long createBook(String name, Long categoryId) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        categoryService.addItem(categoryId, book.getId());
+        return book.getId();
+    }
+
+    private List<Long> itemIds(Long categoryId, int offset, int limit) {
+        return categoryService.findItems(categoryId, offset, limit).stream()
+                .map(ItemServiceDto::getId)
+                .collect(toList());
+    }
+}
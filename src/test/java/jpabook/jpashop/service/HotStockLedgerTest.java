@@ -0,0 +1,209 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderTargetNotFoundException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * hot 상품 재고 장부
+ * 장부마다 다른 상품을 쓰도록 테스트에서 직접 만든다.(스프링 빈은 hot 상품이 없다.)
+ * 트랜잭션을 스레드마다 따로 커밋해야 하므로 @Transactional을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:hot-stock-ledger")
+public class HotStockLedgerTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 50;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    StockReservationRepository stockReservationRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문중에_반영과_보정이_돌아도_초과판매없음() throws Exception {
+        //given
+        int stock = 100;
+        Long memberId = createMember();
+        Long itemId = createBook(stock);
+        HotStockLedger ledger = createLedger(itemId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean ordering = new AtomicBoolean(true);
+        AtomicInteger ordered = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        order(ledger, memberId, itemId, 1);
+                        ordered.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        //스케줄러 대신 주문과 동시에 반영, 보정을 계속 실행
+        Future<?> maintenance = executor.submit(() -> {
+            start.await();
+            while (ordering.get()) {
+                ledger.flush();
+                ledger.reconcile();
+            }
+            return null;
+        });
+
+        //when
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        ordering.set(false);
+        maintenance.get();
+        executor.shutdown();
+        ledger.reconcile();
+
+        //then
+        assertEquals("재고만큼만 주문이 성공해야 한다.", stock, ordered.get());
+        assertEquals(THREADS * ORDERS_PER_THREAD - stock, soldOut.get());
+        assertEquals(0, ledger.getStockQuantity(itemId));
+        assertEquals("예약이 모두 DB 재고에 반영되어야 한다.", 0, stockQuantity(itemId));
+        assertEquals(0, stockReservationRepository.count());
+    }
+
+    @Test
+    public void 반영전에_종료되어도_재시작하면_차감된다() {
+        //given 주문은 커밋됐지만 재고에 반영하기 전에 종료
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        HotStockLedger ledger = createLedger(itemId);
+        for (int i = 0; i < 3; i++) {
+            order(ledger, memberId, itemId, 1);
+        }
+        assertEquals(7, ledger.getStockQuantity(itemId));
+        assertEquals("아직 반영 전", 10, stockQuantity(itemId));
+
+        //when 새 장부로 재시작
+        HotStockLedger restarted = createLedger(itemId);
+
+        //then
+        assertEquals(7, restarted.getStockQuantity(itemId));
+        assertEquals(7, stockQuantity(itemId));
+        assertEquals(0, stockReservationRepository.count());
+    }
+
+    @Test
+    public void 일괄주문의_hot_상품은_장부에서_예약한다() {
+        //given hot 상품 재고 5, 일반 상품 재고 10
+        Long memberId = createMember();
+        Long hotItemId = createBook(5);
+        Long itemId = createBook(10);
+        HotStockLedger ledger = createLedger(hotItemId);
+        OrderStockFacade orderStockFacade = new OrderStockFacade(orderService, ledger);
+
+        //when
+        List<Long> orderIds = orderStockFacade.orderBatch(List.of(
+                new OrderLine(memberId, hotItemId, 2),
+                new OrderLine(memberId, itemId, 1),
+                new OrderLine(memberId, hotItemId, 1)));
+
+        //then hot 상품은 장부에서 예약하고 반영할 때 차감된다.
+        assertEquals(3, orderIds.size());
+        assertEquals(2, ledger.getStockQuantity(hotItemId));
+        assertEquals("아직 반영 전", 5, stockQuantity(hotItemId));
+        assertEquals(9, stockQuantity(itemId));
+        ledger.flush();
+        assertEquals(2, stockQuantity(hotItemId));
+        assertEquals(0, stockReservationRepository.count());
+
+        //hot 상품 재고가 부족하면 일괄 주문 전체가 실패하고 예약도 남지 않는다.
+        assertThrows(NotEnoughStockException.class, () -> orderStockFacade.orderBatch(List.of(
+                new OrderLine(memberId, hotItemId, 1),
+                new OrderLine(memberId, itemId, 1),
+                new OrderLine(memberId, hotItemId, 2))));
+        //주문 저장이 실패해도 예약을 돌려놓는다.
+        assertThrows(OrderTargetNotFoundException.class, () -> orderStockFacade.orderBatch(List.of(
+                new OrderLine(memberId, hotItemId, 1),
+                new OrderLine(-1L, itemId, 1))));
+        assertEquals(2, ledger.getStockQuantity(hotItemId));
+        assertEquals(9, stockQuantity(itemId));
+        ledger.reconcile();
+        assertEquals(2, ledger.getStockQuantity(hotItemId));
+        assertEquals(2, stockQuantity(hotItemId));
+    }
+
+    /**
+     * OrderStockFacade의 hot 상품 주문과 같다.
+     */
+    private void order(HotStockLedger ledger, Long memberId, Long itemId, int count) {
+        ledger.reserve(itemId, count);
+        try {
+            orderService.orderWithStockReservation(memberId, itemId, count);
+        } catch (RuntimeException e) {
+            ledger.release(itemId, count);
+            throw e;
+        }
+    }
+
+    private HotStockLedger createLedger(Long itemId) {
+        HotStockLedger ledger = new HotStockLedger(itemRepository, stockReservationRepository, transactionManager, List.of(itemId), 8);
+        ledger.load();
+        return ledger;
+    }
+
+    private int stockQuantity(Long itemId) {
+        return itemService.findItemOne(itemId).getStockQuantity();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("hot회원-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("hot jpa");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
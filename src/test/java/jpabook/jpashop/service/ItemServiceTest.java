@@ -41,7 +41,8 @@ public class ItemServiceTest {
 
     @Test
     public void 상품_전체_조회() throws Exception {
-        //given
+        //given InitDb가 등록한 상품
+        int initialCount = itemService.findItem().size();
         Item album = new Album();
         album.setName("앨범");
         Item book = new Book();
@@ -53,9 +54,9 @@ public class ItemServiceTest {
         itemService.saveItem(book);
         itemService.saveItem(movie);
 
-        List<Item> item = itemService.findItem();
+        List<Item> item = itemService.findItem(); //등록하면 쿼리 캐시가 무효화되어 새 상품도 조회된다.
         //then
-        assertEquals(3, item.size());
+        assertEquals(initialCount + 3, item.size());
     }
 
     @Test
@@ -0,0 +1,128 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * chunk마다 커밋하므로 롤백하지 않고 DB를 분리한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.member.import.chunk-size=2",
+        "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:member-import"
+})
+public class MemberImportServiceTest {
+
+    @Autowired
+    MemberImportService memberImportService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void NDJSON_chunk_단위_등록과_실패_보고() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("기존회원");
+        memberService.join(member);
+
+        String body = "{\"name\": \"일괄1\", \"city\": \"서울\", \"street\": \"강가\", \"zipcode\": \"123\"}\n" +
+                "{\"name\": \"기존회원\"}\n" +          //2: 이미 존재
+                "\n" +
+                "{\"name\": \"일괄2\"}\n" +
+                "{\"name\": \"일괄2\"}\n" +             //5: 파일 안 중복 (다음 chunk)
+                "not json\n" +                         //6: 형식 오류
+                "{\"city\": \"서울\"}\n" +              //7: 이름 없음
+                "{\"name\": \"일괄3\"}\n";
+        List<MemberImportProgress> progress = new ArrayList<>();
+
+        //when
+        MemberImportProgress result = memberImportService.importMembers(reader(body), MemberImportFormat.NDJSON, progress::add);
+
+        //then
+        assertTrue(result.isDone());
+        assertEquals(8, result.getLines());
+        assertEquals(3, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals("chunk마다 진행 상황 + 마지막 결과", result.getChunk() + 1, progress.size());
+
+        List<Long> errorLines = progress.stream()
+                .flatMap(p -> p.getErrors().stream())
+                .map(MemberImportProgress.RowError::getLine)
+                .sorted()
+                .collect(toList());
+        assertEquals(List.of(2L, 5L, 6L, 7L), errorLines);
+
+        Member imported = memberRepository.findByName("일괄1").get(0);
+        assertEquals("서울", imported.getAddress().getCity());
+        assertTrue(memberRepository.existsByName("일괄3"));
+    }
+
+    @Test
+    public void CSV_헤더는_건너뛴다() throws Exception {
+        String body = "name,city,street,zipcode\n" +
+                "csv회원1,서울,강가,123\n" +
+                "csv회원2,,,\n" +
+                "csv회원3,서울,강가,123,초과\n"; //컬럼 초과
+
+        MemberImportProgress result = memberImportService.importMembers(reader(body), MemberImportFormat.CSV, p -> { });
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertNull(memberRepository.findByName("csv회원2").get(0).getAddress());
+    }
+
+    @Test
+    public void CSV_헤더가_정확히_같을_때만_건너뛴다() throws Exception {
+        String body = "name회원,서울,강가,123\n" + //name으로 시작해도 헤더가 아니다.
+                "name헤더아님,,,\n";
+
+        MemberImportProgress result = memberImportService.importMembers(reader(body), MemberImportFormat.CSV, p -> { });
+
+        assertEquals(2, result.getImported());
+        assertTrue(memberRepository.existsByName("name회원"));
+    }
+
+    @Test
+    public void 확인한_뒤_다른_곳에서_가입한_이름만_빼고_chunk를_저장() throws Exception {
+        //given 다른 서버에서 가입한 회원처럼 이 서버의 필터를 거치지 않고 저장
+        Member other = new Member();
+        other.setName("다른서버회원");
+        memberRepository.save(other);
+
+        String body = "{\"name\": \"다른서버회원\"}\n" +
+                "{\"name\": \"재시도회원\"}\n";
+
+        List<MemberImportProgress.RowError> errors = new ArrayList<>();
+
+        //when
+        MemberImportProgress result = memberImportService.importMembers(reader(body), MemberImportFormat.NDJSON,
+                p -> errors.addAll(p.getErrors()));
+
+        //then chunk 전체가 실패하지 않고 충돌한 이름만 실패
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, errors.size());
+        assertEquals(1L, errors.get(0).getLine());
+        assertEquals("이미 존재하는 회원입니다.", errors.get(0).getMessage());
+        assertTrue(memberRepository.existsByName("재시도회원"));
+    }
+
+    private static BufferedReader reader(String body) {
+        return new BufferedReader(new StringReader(body));
+    }
+}
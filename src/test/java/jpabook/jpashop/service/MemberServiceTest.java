@@ -1,16 +1,23 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepositoryOld;
+import jpabook.jpashop.repository.MemberSummary;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.List;
 
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class)
@@ -24,6 +31,8 @@ public class MemberServiceTest {
     MemberRepositoryOld memberRepository;
     @Autowired
     EntityManager em;
+    @Autowired
+    MemberNameFilter memberNameFilter;
 
     @Test
     public void 회원가입() throws Exception {
@@ -50,4 +59,134 @@ public class MemberServiceTest {
         //then
         fail("예외가 발생 한다.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 가입한_이름만_필터에_있다() throws Exception {
+        //given
+        String name = "필터회원-" + System.nanoTime();
+        assertTrue("시작할 때 필터를 채운다.", memberNameFilter.isReady());
+        assertFalse(memberNameFilter.mightContain(name));
+
+        //when
+        Member member = new Member();
+        member.setName(name);
+        memberService.join(member);
+
+        //then
+        assertTrue(memberNameFilter.mightContain(name));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 필터에_없어도_unique_제약조건으로_중복_방지() throws Exception {
+        //given 다른 서버에서 가입한 회원처럼 필터를 거치지 않고 저장
+        Member member1 = new Member();
+        member1.setName("동시가입");
+        em.persist(member1);
+        em.flush();
+
+        Member member2 = new Member();
+        member2.setName("동시가입");
+        //when
+        memberService.join(member2); //예외가 발생해야 한다.
+        //then
+        fail("unique 제약조건 위반은 중복 회원 예외로 바뀌어야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 다른_회원_이름으로_수정하면_예외() throws Exception {
+        //given
+        join("수정중복1");
+        Long id = join("수정중복2");
+        //when
+        memberService.update(id, "수정중복1", null); //예외가 발생해야 한다.
+        //then
+        fail("다른 회원의 이름으로 수정하면 예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 수정도_필터에_없으면_unique_제약조건으로_중복_방지() throws Exception {
+        //given 다른 서버에서 가입한 회원처럼 필터를 거치지 않고 저장
+        Member other = new Member();
+        other.setName("동시수정");
+        em.persist(other);
+        em.flush();
+        Long id = join("동시수정전");
+        //when
+        memberService.update(id, "동시수정", null); //예외가 발생해야 한다.
+        //then
+        fail("unique 제약조건 위반은 중복 회원 예외로 바뀌어야 한다.");
+    }
+
+    @Test
+    public void 이름을_그대로_두고_수정() throws Exception {
+        Long id = join("주소만수정");
+
+        memberService.update(id, "주소만수정", new Address("부산", "해운대", "456"));
+
+        assertEquals("부산", memberService.findMember(id).getAddress().getCity());
+    }
+
+    @Test
+    public void 이름_unique_제약조건_위반만_중복_회원() throws Exception {
+        assertTrue(MemberService.isDuplicateName(violation("PUBLIC.UK_MEMBER_NAME_INDEX_8")));
+        assertFalse(MemberService.isDuplicateName(violation("PUBLIC.PRIMARY_KEY_8")));
+        assertFalse(MemberService.isDuplicateName(new DataIntegrityViolationException("not null")));
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("constraint",
+                new ConstraintViolationException("constraint", new SQLException(), constraintName));
+    }
+
+    @Test
+    public void 회원목록_keyset_페이징() throws Exception {
+        //given
+        Long id1 = join("페이징1");
+        Long id2 = join("페이징2");
+        Long id3 = join("페이징3");
+
+        //when
+        MemberSummaryPage first = memberService.findMemberSummaries(id1 - 1, 2);
+        MemberSummaryPage next = memberService.findMemberSummaries(first.getNextLastId(), 2);
+
+        //then
+        assertEquals(List.of(id1, id2), first.getMembers().stream().map(MemberSummary::getId).collect(toList()));
+        assertEquals(id2, first.getNextLastId());
+        assertEquals(id3, next.getMembers().get(0).getId());
+        assertTrue("페이지 크기는 최대 MAX_PAGE_SIZE",
+                memberService.findMemberSummaries(null, 10_000).getMembers().size() <= MemberService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    public void limit이_1보다_작으면_1개씩_다음_페이지가_있다() throws Exception {
+        Long id1 = join("한개씩1");
+        join("한개씩2");
+
+        MemberSummaryPage page = memberService.findMemberSummaries(id1 - 1, 0);
+
+        assertEquals(1, page.getMembers().size());
+        assertEquals(id1, page.getNextLastId());
+    }
+
+    @Test
+    public void 회원이름_앞부분_검색() throws Exception {
+        //given
+        join("검색_홍길동");
+        join("검색_홍길순");
+        join("검색X홍길동"); //_는 와일드카드가 아니다.
+
+        //when
+        List<String> names = memberService.searchMembers("검색_홍", 20).stream()
+                .map(MemberSummary::getName)
+                .collect(toList());
+
+        //then
+        assertEquals(List.of("검색_홍길동", "검색_홍길순"), names);
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,147 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.DeliveryOutbox;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.repository.DeliveryOutboxRepository;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * 비동기 주문 접수
+ * 주문은 처리 스레드에서 따로 커밋되므로 @Transactional을 붙이지 않고 DB를 분리한다.
+ */
+@RunWith(Enclosed.class)
+public class OrderIntakeServiceTest {
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = {
+            "jpashop.order.intake.workers=2",
+            "jpashop.order.intake.max-batch-size=10",
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:order-intake"
+    })
+    public static class Processing {
+
+        private static final int ORDERS = 30;
+        private static final int STOCK = 100;
+
+        @Autowired
+        OrderIntakeService orderIntakeService;
+        @Autowired
+        OrderService orderService;
+        @Autowired
+        MemberService memberService;
+        @Autowired
+        ItemService itemService;
+        @Autowired
+        DeliveryOutboxRepository deliveryOutboxRepository;
+
+        @Test
+        public void 비동기주문_처리() throws Exception {
+            //given
+            Long memberId = createMember(memberService);
+            Long itemId = createBook(itemService, STOCK);
+
+            //when
+            List<OrderTicket> tickets = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                tickets.add(orderIntakeService.submit(new OrderLine(memberId, itemId, 1)));
+            }
+            OrderTicket soldOut = orderIntakeService.submit(new OrderLine(memberId, itemId, STOCK + 1)); //항상 재고 부족
+            tickets.add(soldOut);
+            awaitFinished(tickets);
+
+            //then
+            for (OrderTicket ticket : tickets.subList(0, ORDERS)) {
+                assertEquals("재고가 있는 주문은 같이 처리된 주문이 실패해도 성공해야 한다.",
+                        OrderTicket.Status.COMPLETED, ticket.getStatus());
+                assertNotNull(ticket.getOrderId());
+            }
+            assertEquals("재고가 부족한 주문만 실패해야 한다.", OrderTicket.Status.FAILED, soldOut.getStatus());
+            assertEquals(STOCK - ORDERS, itemService.findItemOne(itemId).getStockQuantity());
+
+            List<DeliveryOutbox> outbox = deliveryOutboxRepository.findByOrderIdOrderByIdAsc(tickets.get(0).getOrderId());
+            assertEquals(1, outbox.size());
+            assertEquals(DeliveryStatus.READY, outbox.get(0).getDeliveryStatus());
+            assertNull(outbox.get(0).getPublishedAt());
+        }
+
+        @Test
+        public void 배송완료_outbox_기록() throws Exception {
+            //given
+            Long memberId = createMember(memberService);
+            Long itemId = createBook(itemService, STOCK);
+            OrderTicket ticket = orderIntakeService.submit(new OrderLine(memberId, itemId, 1));
+            awaitFinished(List.of(ticket));
+
+            //when
+            orderService.completeDelivery(ticket.getOrderId());
+            orderService.completeDelivery(ticket.getOrderId());
+
+            //then
+            List<DeliveryOutbox> outbox = deliveryOutboxRepository.findByOrderIdOrderByIdAsc(ticket.getOrderId());
+            assertEquals("READY -> COMP 변경이 순서대로 한번씩 기록되어야 한다.", 2, outbox.size());
+            assertEquals(DeliveryStatus.READY, outbox.get(0).getDeliveryStatus());
+            assertEquals(DeliveryStatus.COMP, outbox.get(1).getDeliveryStatus());
+        }
+
+        private void awaitFinished(List<OrderTicket> tickets) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (tickets.stream().anyMatch(t -> !t.isFinished())) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("주문 처리가 끝나지 않았습니다. 대기열=" + orderIntakeService.getQueueSize());
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    @RunWith(SpringRunner.class)
+    @SpringBootTest(properties = {
+            "jpashop.order.intake.workers=0", //처리하지 않아서 대기열이 비지 않는다.
+            "jpashop.order.intake.queue-capacity=2",
+            "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:order-intake-full"
+    })
+    public static class Backpressure {
+
+        @Autowired
+        OrderIntakeService orderIntakeService;
+
+        @Test(expected = OrderQueueFullException.class)
+        public void 대기열이_가득차면_거절() throws Exception {
+            orderIntakeService.submit(new OrderLine(1L, 1L, 1));
+            orderIntakeService.submit(new OrderLine(1L, 1L, 1));
+
+            orderIntakeService.submit(new OrderLine(1L, 1L, 1)); //예외가 발생해야 한다.
+
+            fail("대기열이 가득 차면 예외가 발생해야 한다.");
+        }
+    }
+
+    private static Long createMember(MemberService memberService) {
+        Member member = new Member();
+        member.setName("비동기주문회원-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private static Long createBook(ItemService itemService, int stockQuantity) {
+        Book book = new Book();
+        book.setName("비동기 jpa");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -7,7 +7,12 @@ import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderTargetNotFoundException;
+import jpabook.jpashop.monitoring.SqlStatistics;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleRepository;
+import org.hibernate.Hibernate;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +21,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -30,6 +38,8 @@ public class OrderServiceTest {
     OrderService orderService;
     @Autowired
     OrderRepository orderRepository;
+    @Autowired
+    OrderSimpleRepository orderSimpleRepository;
 
     @Test
     public void 상품주문() throws Exception {
@@ -50,6 +60,29 @@ public class OrderServiceTest {
         assertEquals("주문 수량만큼 재고가 줄어야 한다.", 8, book.getStockQuantity());
     }
 
+    @Test
+    public void 주문합계는_주문상품을_읽지_않는다() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("합계 jpa", 10000, 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        em.flush();
+        em.clear();
+
+        //when
+        Order order = orderRepository.findOne(orderId);
+        OrderSimpleQueryDto dto = orderSimpleRepository.findOrdersDto().stream()
+                .filter(o -> o.getOrderId().equals(orderId))
+                .findFirst().get();
+
+        //then
+        assertEquals(30000, order.getTotalPrice());
+        assertEquals(3, order.getItemCount());
+        assertFalse("합계는 주문에 저장되어 있으므로 orderItems를 초기화하지 않는다.", Hibernate.isInitialized(order.getOrderItems()));
+        assertEquals(30000, dto.getTotalPrice());
+        assertEquals(3, dto.getItemCount());
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
@@ -60,8 +93,12 @@ public class OrderServiceTest {
     }
 
     private Member createMember() {
+        return createMember("회원1");
+    }
+
+    private Member createMember(String name) {
         Member member = new Member();
-        member.setName("회원1");
+        member.setName(name);
         member.setAddress(new Address("서울", "강가", "123-123"));
         em.persist(member);
         return member;
@@ -100,4 +137,74 @@ public class OrderServiceTest {
         //then
         fail("재고 수량 부족 예외가 발생한다.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 일괄주문() throws Exception {
+        //given 회원 2명, 상품 2개로 주문 20건
+        Member memberA = createMember("일괄회원A");
+        Member memberB = createMember("일괄회원B");
+        Book bookA = createBook("일괄 jpa", 10000, 100);
+        Book bookB = createBook("일괄 spring", 20000, 100);
+        List<OrderLine> orderLines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orderLines.add(i % 2 == 0
+                    ? new OrderLine(memberA.getId(), bookA.getId(), 1)
+                    : new OrderLine(memberB.getId(), bookB.getId(), 2));
+        }
+        em.flush();
+        em.clear();
+
+        //when insert는 flush할 때 나가므로 flush까지 sql을 센다.
+        SqlStatistics statistics = new SqlStatistics();
+        SqlStatistics.bind(statistics);
+        List<Long> orderIds;
+        try {
+            orderIds = orderService.orderBatch(orderLines);
+            em.flush();
+        } finally {
+            SqlStatistics.clear();
+        }
+        em.clear();
+
+        //then 요청한 순서대로 주문이 저장된다.
+        assertEquals(20, orderIds.size());
+        for (int i = 0; i < orderIds.size(); i++) {
+            Order order = orderRepository.findOne(orderIds.get(i));
+            OrderLine orderLine = orderLines.get(i);
+            assertEquals(orderLine.getMemberId(), order.getMember().getId());
+            assertEquals(orderLine.getItemId(), order.getOrderItems().get(0).getItem().getId());
+            assertEquals(orderLine.getCount(), order.getItemCount());
+        }
+        assertEquals(90, em.find(Book.class, bookA.getId()).getStockQuantity());
+        assertEquals(80, em.find(Book.class, bookB.getId()).getStockQuantity());
+
+        //회원, 상품 IN 조회 2 + insert batch 4(orders, delivery, order_item, delivery_outbox) + 재고 update batch 1 + 시퀀스
+        //주문 건수만큼 실행되는 sql은 없어야 한다.
+        assertTrue("sql 수가 주문 건수에 비례하지 않는다. statements = " + statistics.getStatementCount(),
+                statistics.getStatementCount() <= 10);
+        assertTrue("같은 sql이 반복되지 않는다. " + statistics.getMostRepeatedSql(),
+                statistics.getMaxRepeatCount() <= 3);
+    }
+
+    @Test
+    public void 일괄주문_없는_회원과_상품은_모아서_알려준다() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 jpa", 10000, 10);
+        List<OrderLine> orderLines = List.of(
+                new OrderLine(member.getId(), book.getId(), 1),
+                new OrderLine(-2L, book.getId(), 1),
+                new OrderLine(-1L, -3L, 1));
+
+        //when
+        try {
+            orderService.orderBatch(orderLines);
+            fail("없는 회원, 상품이 있으면 예외가 발생한다.");
+        } catch (OrderTargetNotFoundException e) {
+            //then
+            assertEquals(Set.of(-2L, -1L), e.getMemberIds());
+            assertEquals(Set.of(-3L), e.getItemIds());
+        }
+        assertEquals("주문하지 않았으므로 재고는 그대로", 10, book.getStockQuantity());
+    }
+}
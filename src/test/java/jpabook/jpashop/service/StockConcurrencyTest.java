@@ -0,0 +1,147 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 여러 스레드가 같은 상품을 동시에 주문해도 재고 이상 팔리지 않는지 검증
+ * (방식별 처리량은 StockOrderBenchmark)
+ * 트랜잭션을 스레드마다 따로 커밋해야 하므로 @Transactional을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.max-retries=100",
+        "spring.datasource.hikari.jdbc-url=jdbc:h2:mem:stock-concurrency" //커밋된 데이터가 다른 테스트에 남지 않도록 DB를 분리
+})
+public class StockConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 50;
+    private static final int STOCK = 100;
+
+    @Autowired
+    OrderStockFacade orderStockFacade;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 낙관적락_동시주문_초과판매없음() throws Exception {
+        orderConcurrently(StockMode.OPTIMISTIC);
+    }
+
+    @Test
+    public void 조건부업데이트_동시주문_초과판매없음() throws Exception {
+        orderConcurrently(StockMode.ATOMIC);
+    }
+
+    @Test
+    public void 같은_상품을_동시에_일괄주문해도_충돌하면_재시도한다() throws Exception {
+        //given 재고는 충분하고 모든 일괄 주문이 같은 상품을 차감한다.
+        int batches = 10;
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK * 2);
+        Long otherItemId = createBook(STOCK * 2);
+        List<OrderLine> orderLines = List.of(
+                new OrderLine(memberId, itemId, 1),
+                new OrderLine(memberId, otherItemId, 1),
+                new OrderLine(memberId, itemId, 1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < batches; i++) {
+                    orderStockFacade.orderBatch(orderLines);
+                }
+                return null;
+            }));
+        }
+
+        //when 충돌(ObjectOptimisticLockingFailureException)이 밖으로 나오면 future.get()이 실패한다.
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(STOCK * 2 - THREADS * batches * 2, itemService.findItemOne(itemId).getStockQuantity());
+        assertEquals(STOCK * 2 - THREADS * batches, itemService.findItemOne(otherItemId).getStockQuantity());
+    }
+
+    private void orderConcurrently(StockMode mode) throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ordered = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderStockFacade.order(mode, memberId, itemId, 1);
+                        ordered.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        //when
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        int stockQuantity = itemService.findItemOne(itemId).getStockQuantity();
+        assertEquals("재고만큼만 주문이 성공해야 한다.", STOCK, ordered.get());
+        assertEquals("나머지 주문은 재고 부족으로 실패해야 한다.", THREADS * ORDERS_PER_THREAD - STOCK, soldOut.get());
+        assertEquals("재고가 남거나 음수가 되면 안된다.", 0, stockQuantity);
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("동시주문회원-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("동시성 jpa");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}